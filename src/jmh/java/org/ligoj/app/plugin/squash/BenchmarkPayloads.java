@@ -0,0 +1,76 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark payloads generated from the shapes of the mock server resources.
+ */
+final class BenchmarkPayloads {
+
+	private BenchmarkPayloads() {
+		// Utility class
+	}
+
+	/**
+	 * Read a mock server resource.
+	 *
+	 * @param name The resource name, relative to <code>mock-server/squash</code>.
+	 * @return The resource content.
+	 */
+	static String read(final String name) {
+		try (InputStream input = BenchmarkPayloads.class.getResourceAsStream("/mock-server/squash/" + name)) {
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Build a <code>generic-projects</code> listing of the given size, based on the first row of
+	 * <code>generic-projects.json</code>. Project identifiers are <code>1</code> to <code>rows</code>.
+	 *
+	 * @param rows The amount of projects.
+	 * @return The JSON listing.
+	 */
+	static String projects(final int rows) {
+		final var source = read("generic-projects.json");
+		final var start = source.indexOf('{', source.indexOf("\"aaData\""));
+		final var row = source.substring(start, source.indexOf('}', start) + 1);
+		final var listing = new StringBuilder(row.length() * rows + 128);
+		listing.append("{\"iTotalRecords\":").append(rows).append(",\"iTotalDisplayRecords\":").append(rows)
+				.append(",\"sEcho\":\"6\",\"sColumns\":null,\"aaData\":[\n");
+		for (var i = 1; i <= rows; i++) {
+			if (i > 1) {
+				listing.append(",\n");
+			}
+			listing.append(row.replace("\"index\":1,", "\"index\":" + i + ",")
+					.replace("\"project-id\":79,", "\"project-id\":" + i + ",")
+					.replace("\"name\":\"Client1 - P1\"", "\"name\":\"Client" + (i % 100) + " - P" + i + "\""));
+		}
+		return listing.append("]}").toString();
+	}
+
+	/**
+	 * Build an administration page of at least the given size, based on <code>administration.html</code>. The
+	 * version is kept at the end of the page, as the worst case of the extraction.
+	 *
+	 * @param size The minimal page size.
+	 * @return The HTML page.
+	 */
+	static String administration(final int size) {
+		final var source = read("administration.html");
+		final var versionStart = source.indexOf(SquashVersionExtractor.VERSION_TAG_START);
+		final var head = source.substring(0, versionStart);
+		final var padding = new StringBuilder(size);
+		while (head.length() + padding.length() < size) {
+			padding.append("<div class=\"admin-line\"><span>Padding content</span></div>\n");
+		}
+		return head + padding + source.substring(versionStart);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Project lookup by identifier, as done by <code>SquashPluginResource#getProject</code>: from the cached catalog and
+ * from the raw listing when the cache is disabled. The looked up project is in the middle of the listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SquashProjectLookupBenchmark {
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int rows;
+
+	private String listing;
+
+	private SquashProjectCatalog catalog;
+
+	@Setup
+	public void setup() throws IOException {
+		listing = BenchmarkPayloads.projects(rows);
+		catalog = new SquashProjectCatalog(SquashProjectParser.parse(listing), System.currentTimeMillis());
+	}
+
+	@Benchmark
+	public SquashProject catalog() {
+		return catalog.get(rows / 2);
+	}
+
+	@Benchmark
+	public SquashProject listing() throws IOException {
+		return SquashProjectParser.find(listing, rows / 2);
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Binding of the <code>generic-projects</code> listing, as done by
+ * {@link SquashPluginResource#getProjectsDataTables(java.util.Map, String)}, compared to the full data binding of
+ * {@link TableItem}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SquashProjectParserBenchmark {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int rows;
+
+	private String listing;
+
+	@Setup
+	public void setup() {
+		listing = BenchmarkPayloads.projects(rows);
+	}
+
+	@Benchmark
+	public List<SquashProject> parse() throws IOException {
+		return SquashProjectParser.parse(listing);
+	}
+
+	@Benchmark
+	public TableItem<SquashProject> parsePage() throws IOException {
+		return SquashProjectParser.parsePage(listing);
+	}
+
+	@Benchmark
+	public TableItem<SquashProject> dataBinding() throws IOException {
+		return MAPPER.readValue(listing, new TypeReference<TableItem<SquashProject>>() {
+			// Generic type
+		});
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Version extraction from the administration page, as done by
+ * {@link SquashPluginResource#validateAdminAccess(java.util.Map)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SquashVersionExtractorBenchmark {
+
+	/**
+	 * Page size: <code>0</code> for the original mock page, about 15KB.
+	 */
+	@Param({ "0", "1000000" })
+	private int size;
+
+	private String page;
+
+	@Setup
+	public void setup() {
+		page = size == 0 ? BenchmarkPayloads.read("administration.html") : BenchmarkPayloads.administration(size);
+	}
+
+	@Benchmark
+	public String extract() {
+		return SquashVersionExtractor.extract(page);
+	}
+
+	@Benchmark
+	public String extractReader() throws IOException {
+		return SquashVersionExtractor.extract(new StringReader(page));
+	}
+}
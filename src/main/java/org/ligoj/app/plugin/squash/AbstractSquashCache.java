@@ -0,0 +1,336 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded cache of values fetched from Squash TM. A value older than the TTL is still served while a background
+ * refresh takes place, and is synchronously fetched once too old. A value restored from outside this cache is served
+ * whatever its age until its first successful refresh. Concurrent misses for the same key share a single fetch. A
+ * value can be forced to be fetched again, at most once by reload interval.
+ *
+ * @param <V> The cached value type.
+ */
+@Slf4j
+public abstract class AbstractSquashCache<V> {
+
+	/**
+	 * Value loader.
+	 *
+	 * @param <V> The loaded value type.
+	 */
+	@FunctionalInterface
+	public interface Loader<V> {
+
+		/**
+		 * Fetch the value.
+		 *
+		 * @return The fetched value.
+		 * @throws IOException When the Squash TM content cannot be parsed.
+		 */
+		V load() throws IOException;
+	}
+
+	/**
+	 * A cached value.
+	 *
+	 * @param restored   <code>true</code> for a value restored from outside this cache, and not yet refreshed.
+	 * @param reloadedAt The time of the last forced reload of this value, in milliseconds.
+	 */
+	private record Entry<V>(V value, long fetchedAt, boolean restored, long reloadedAt) {
+	}
+
+	/**
+	 * Cached values.
+	 */
+	private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Fetches in progress.
+	 */
+	private final Map<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * Background refresh executor.
+	 */
+	private final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+		final var thread = new Thread(r, "squash-cache");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Return the age of a value triggering a background refresh, in milliseconds. When zero or negative, the cache is
+	 * disabled.
+	 *
+	 * @return The TTL.
+	 */
+	protected abstract long getTtl();
+
+	/**
+	 * Return the maximal age of a value still served while refreshing, in milliseconds.
+	 *
+	 * @return The maximal age.
+	 */
+	protected abstract long getMaxStale();
+
+	/**
+	 * Return the maximal amount of cached values.
+	 *
+	 * @return The maximal amount of cached values.
+	 */
+	protected abstract int getMaxSize();
+
+	/**
+	 * Return the minimal delay between two forced reloads of a value, in milliseconds. By default, a value is not
+	 * reloaded before its TTL.
+	 *
+	 * @return The reload interval.
+	 */
+	protected long getReloadInterval() {
+		return getTtl();
+	}
+
+	/**
+	 * Return the fetch time of a value.
+	 *
+	 * @param value    The loaded value.
+	 * @param loadedAt The time the loading has completed, in milliseconds.
+	 * @return The fetch time of this value, in milliseconds.
+	 */
+	protected long getFetchedAt(final V value, final long loadedAt) {
+		return loadedAt;
+	}
+
+	/**
+	 * Return a value saved outside this cache, served while the value is refreshed in background.
+	 *
+	 * @param key The cache key.
+	 * @return The saved value, or <code>null</code>.
+	 */
+	protected V restore(final String key) {
+		return null;
+	}
+
+	/**
+	 * Save a successfully fetched value outside this cache.
+	 *
+	 * @param key   The cache key.
+	 * @param value The fetched value.
+	 */
+	protected void store(final String key, final V value) {
+		// Nothing to save by default
+	}
+
+	/**
+	 * Forget the value saved outside this cache, once evicted from this cache.
+	 *
+	 * @param key The cache key.
+	 */
+	protected void discard(final String key) {
+		// Nothing to forget by default
+	}
+
+	/**
+	 * Return the loggable description of a key, never holding a credential.
+	 *
+	 * @param key The cache key.
+	 * @return The description of the key.
+	 */
+	protected String toLabel(final String key) {
+		return key;
+	}
+
+	/**
+	 * Indicate the values are cached.
+	 *
+	 * @return <code>true</code> when the cache is enabled.
+	 */
+	public boolean isEnabled() {
+		return getTtl() > 0;
+	}
+
+	/**
+	 * Return the value of a key, fetching it only when missing or too old.
+	 *
+	 * @param key    The cache key.
+	 * @param loader The value loader.
+	 * @return The value.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	protected V get(final String key, final Loader<V> loader) throws IOException {
+		if (!isEnabled()) {
+			// Disabled cache
+			return loader.load();
+		}
+		final var entry = entries.get(key);
+		if (entry != null) {
+			final var age = System.currentTimeMillis() - entry.fetchedAt();
+			if (age < getTtl()) {
+				return entry.value();
+			}
+			if (entry.restored() || age < getMaxStale()) {
+				// Serve the stale value while refreshing it
+				refresh(key, loader);
+				return entry.value();
+			}
+		} else {
+			final var restored = restore(key);
+			if (restored != null) {
+				// Serve the restored value while refreshing it
+				final var existing = entries.putIfAbsent(key,
+						new Entry<>(restored, getFetchedAt(restored, System.currentTimeMillis()), true, 0));
+				refresh(key, loader);
+				return existing == null ? restored : existing.value();
+			}
+		}
+		return load(key, loader);
+	}
+
+	/**
+	 * Return the value of a key, synchronously fetched again unless it has been fetched or reloaded during the reload
+	 * interval. Used when the cached value is known to miss an entry that may have been created since its fetch.
+	 *
+	 * @param key    The cache key.
+	 * @param loader The value loader.
+	 * @return The value.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	protected V reload(final String key, final Loader<V> loader) throws IOException {
+		final var entry = entries.get(key);
+		final var now = System.currentTimeMillis();
+		if (!isEnabled() || entry == null
+				|| now - Math.max(entry.fetchedAt(), entry.reloadedAt()) < getReloadInterval()
+				|| !entries.replace(key, entry,
+						new Entry<>(entry.value(), entry.fetchedAt(), entry.restored(), now))) {
+			// Recently fetched, or already reloaded by another caller
+			return get(key, loader);
+		}
+		return load(key, loader);
+	}
+
+	/**
+	 * Return the cached value of a key without fetching it.
+	 *
+	 * @param key The cache key.
+	 * @return The cached value, or <code>null</code>.
+	 */
+	protected V peek(final String key) {
+		final var entry = entries.get(key);
+		return entry == null ? null : entry.value();
+	}
+
+	/**
+	 * Synchronously fetch the value, or join the fetch in progress for this key.
+	 */
+	private V load(final String key, final Loader<V> loader) throws IOException {
+		final var future = new CompletableFuture<V>();
+		final var existing = loading.putIfAbsent(key, future);
+		if (existing != null) {
+			return join(existing);
+		}
+		try {
+			final var value = loader.load();
+			loaded(key, value);
+			future.complete(value);
+			return value;
+		} catch (final IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	/**
+	 * Fetch the value in background, unless a fetch is already in progress for this key.
+	 */
+	private void refresh(final String key, final Loader<V> loader) {
+		final var future = new CompletableFuture<V>();
+		if (loading.putIfAbsent(key, future) != null) {
+			return;
+		}
+		executor.execute(() -> {
+			try {
+				final var value = loader.load();
+				loaded(key, value);
+				future.complete(value);
+			} catch (final IOException | RuntimeException e) {
+				// Keep the stale value
+				log.warn("Unable to refresh the Squash TM data of {}", toLabel(key), e);
+				future.completeExceptionally(e);
+			} finally {
+				loading.remove(key, future);
+			}
+		});
+	}
+
+	/**
+	 * Save a successfully fetched value, in this cache and outside.
+	 */
+	private void loaded(final String key, final V value) {
+		store(key, value);
+		put(key, value);
+	}
+
+	/**
+	 * Save a value.
+	 *
+	 * @param key   The cache key.
+	 * @param value The value to save.
+	 */
+	protected void put(final String key, final V value) {
+		entries.put(key, new Entry<>(value, getFetchedAt(value, System.currentTimeMillis()), false, 0));
+		while (entries.size() > getMaxSize()) {
+			// Evict the oldest value
+			entries.entrySet().stream().min(Comparator.comparingLong(e -> e.getValue().fetchedAt()))
+					.filter(e -> entries.remove(e.getKey(), e.getValue())).ifPresent(e -> discard(e.getKey()));
+		}
+	}
+
+	private V join(final CompletableFuture<V> future) throws IOException {
+		try {
+			return future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException ioe) {
+				throw ioe;
+			}
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Invalidate all cached values.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Stop the background refreshes.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
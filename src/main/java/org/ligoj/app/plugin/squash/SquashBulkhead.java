@@ -0,0 +1,204 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import org.apache.commons.lang3.Strings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-node bulkhead bounding the concurrent exchanges with a Squash TM node. Exchanges beyond the limit wait in a
+ * bounded queue, and are rejected when the queue is full or the wait is too long. The limit adapts to the latency of
+ * the node: it slowly grows while the exchanges are faster than the target latency, and is halved otherwise. Bulk
+ * exchanges, such as the full project listings, are bounded too but do not adapt the limit: their duration depends on
+ * the size of the transferred content rather than on the load of the node.
+ */
+@Component
+public class SquashBulkhead {
+
+	/**
+	 * Initial concurrency limit of a node. When zero or negative, the concurrency is not limited.
+	 */
+	@Value("${service-req-squash-concurrency:8}")
+	private int initialLimit = 8;
+
+	/**
+	 * Maximal concurrency limit of a node.
+	 */
+	@Value("${service-req-squash-concurrency-max:32}")
+	private int maxLimit = 32;
+
+	/**
+	 * Maximal amount of exchanges waiting for a node.
+	 */
+	@Value("${service-req-squash-queue:64}")
+	private int maxQueue = 64;
+
+	/**
+	 * Maximal wait of a queued exchange, in milliseconds.
+	 */
+	@Value("${service-req-squash-queue-timeout:5000}")
+	private long queueTimeout = 5000;
+
+	/**
+	 * Exchange duration above which the limit of the node is decreased, in milliseconds.
+	 */
+	@Value("${service-req-squash-latency-target:2000}")
+	private long latencyTarget = 2000;
+
+	/**
+	 * Limiters by node URL.
+	 */
+	private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+	/**
+	 * An acquired exchange slot, released when closed.
+	 */
+	public interface Permit extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+
+	/**
+	 * Concurrency limiter of a node.
+	 */
+	private final class Limiter {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition available = lock.newCondition();
+		private double limit = initialLimit;
+		private int inflight;
+		private int waiting;
+
+		private void acquire(final String url) {
+			lock.lock();
+			try {
+				if (inflight >= (int) limit) {
+					await(url);
+				}
+				inflight++;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void await(final String url) {
+			if (waiting >= maxQueue) {
+				throw saturated(url);
+			}
+			waiting++;
+			try {
+				var nanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+				while (inflight >= (int) limit) {
+					if (nanos <= 0) {
+						throw saturated(url);
+					}
+					nanos = available.awaitNanos(nanos);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw saturated(url);
+			} finally {
+				waiting--;
+			}
+		}
+
+		private void release() {
+			lock.lock();
+			try {
+				inflight--;
+				available.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void release(final long duration) {
+			lock.lock();
+			try {
+				inflight--;
+				if (duration > latencyTarget) {
+					// Multiplicative decrease
+					limit = Math.max(1, limit / 2);
+				} else {
+					// Additive increase, about one slot per limit-sized window
+					limit = Math.min(maxLimit, limit + 1 / limit);
+				}
+				available.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static String toKey(final Map<String, String> parameters) {
+		return Strings.CS.appendIfMissing(parameters.get(SquashPluginResource.PARAMETER_URL), "/");
+	}
+
+	private static ServiceUnavailableException saturated(final String url) {
+		return new ServiceUnavailableException("Too many concurrent requests to Squash TM " + url, 1L);
+	}
+
+	/**
+	 * Acquire an exchange slot for the node, waiting in the queue when the limit is reached.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The acquired slot to close once the exchange is completed.
+	 * @throws ServiceUnavailableException When the node is saturated: the queue is full or the wait is too long.
+	 */
+	public Permit acquire(final Map<String, String> parameters) {
+		return acquire(parameters, true);
+	}
+
+	/**
+	 * Acquire an exchange slot for the node, waiting in the queue when the limit is reached.
+	 *
+	 * @param parameters The node parameters.
+	 * @param adaptive   When <code>true</code>, the duration of the exchange adapts the limit of the node. Should be
+	 *                   <code>false</code> for the bulk exchanges.
+	 * @return The acquired slot to close once the exchange is completed.
+	 * @throws ServiceUnavailableException When the node is saturated: the queue is full or the wait is too long.
+	 */
+	public Permit acquire(final Map<String, String> parameters, final boolean adaptive) {
+		if (initialLimit <= 0) {
+			// Unlimited concurrency
+			return () -> {
+			};
+		}
+		final var url = toKey(parameters);
+		final var limiter = limiters.computeIfAbsent(url, k -> new Limiter());
+		limiter.acquire(url);
+		if (!adaptive) {
+			return limiter::release;
+		}
+		final var start = System.nanoTime();
+		return () -> limiter.release(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	/**
+	 * Return the current concurrency limit of a node.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The current limit.
+	 */
+	public int getLimit(final Map<String, String> parameters) {
+		final var limiter = limiters.get(toKey(parameters));
+		return limiter == null ? initialLimit : (int) limiter.limit;
+	}
+
+	/**
+	 * Forget the adapted limits.
+	 */
+	public void clear() {
+		limiters.clear();
+	}
+}
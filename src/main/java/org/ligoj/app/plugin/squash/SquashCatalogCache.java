@@ -0,0 +1,194 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Project catalogs cache by Squash TM node URL and credentials. A catalog older than the TTL is still served while a
+ * background refresh takes place. Concurrent misses for the same node share a single fetch. A catalog missing a
+ * project is fetched again, at most once by reload interval. The fetched catalogs are
+ * saved as snapshots, and the snapshots read at startup are served until the first refresh of their node. The
+ * snapshot of a catalog evicted from the cache is deleted.
+ */
+@Component
+public class SquashCatalogCache extends AbstractSquashCache<SquashProjectCatalog> {
+
+	/**
+	 * Catalog loader.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+
+		/**
+		 * Fetch the catalog of a node.
+		 *
+		 * @param parameters The node parameters.
+		 * @return The fetched catalog.
+		 * @throws IOException When the Squash TM content cannot be parsed.
+		 */
+		SquashProjectCatalog load(Map<String, String> parameters) throws IOException;
+	}
+
+	/**
+	 * Age of a catalog triggering a background refresh, in milliseconds. When zero or negative, the cache is
+	 * disabled.
+	 */
+	@Value("${service-req-squash-catalog-ttl:300000}")
+	@Getter
+	private long ttl = 300000;
+
+	/**
+	 * Maximal age of a catalog still served while refreshing, in milliseconds. Older catalogs are synchronously
+	 * fetched.
+	 */
+	@Value("${service-req-squash-catalog-stale:3600000}")
+	@Getter
+	private long maxStale = 3600000;
+
+	/**
+	 * Minimal delay between two reloads of a catalog missing a project, in milliseconds.
+	 */
+	@Value("${service-req-squash-catalog-reload:30000}")
+	@Getter
+	private long reloadInterval = 30000;
+
+	/**
+	 * Maximal amount of cached catalogs.
+	 */
+	@Value("${service-req-squash-catalog-max:100}")
+	@Getter
+	private int maxSize = 100;
+
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	@Autowired(required = false)
+	protected SquashCatalogSnapshot snapshot;
+
+	/**
+	 * Catalogs read from the snapshots, and not yet refreshed, by snapshot identifier.
+	 */
+	private final Map<String, SquashProjectCatalog> snapshots = new ConcurrentHashMap<>();
+
+	/**
+	 * Read the saved catalogs. Only the most recent ones fitting in this cache are kept, the other snapshots are
+	 * deleted.
+	 */
+	@PostConstruct
+	public void restoreSnapshots() {
+		if (snapshot != null) {
+			snapshot.readAll().entrySet().stream()
+					.sorted(Comparator.comparingLong(
+							(Map.Entry<String, SquashProjectCatalog> e) -> e.getValue().getFetchedAt()).reversed())
+					.forEach(e -> {
+						if (snapshots.size() < maxSize) {
+							snapshots.put(e.getKey(), e.getValue());
+						} else {
+							snapshot.delete(e.getKey());
+						}
+					});
+		}
+	}
+
+	@Override
+	protected SquashProjectCatalog restore(final String key) {
+		return snapshot == null ? null : snapshots.remove(snapshot.toId(key));
+	}
+
+	@Override
+	protected void store(final String key, final SquashProjectCatalog catalog) {
+		if (snapshot != null) {
+			final var id = snapshot.toId(key);
+			snapshots.remove(id);
+			snapshot.write(id, catalog);
+		}
+	}
+
+	@Override
+	protected void discard(final String key) {
+		if (snapshot != null) {
+			snapshot.delete(snapshot.toId(key));
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		snapshots.clear();
+		if (snapshot != null) {
+			snapshot.deleteAll();
+		}
+	}
+
+	@Override
+	protected long getFetchedAt(final SquashProjectCatalog catalog, final long loadedAt) {
+		return catalog.getFetchedAt();
+	}
+
+	/**
+	 * Return the cache key of the given node parameters: the catalogs are only shared by the same credentials, so a
+	 * wrong password never gets a cached catalog.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The cache key.
+	 */
+	protected String toKey(final Map<String, String> parameters) {
+		return sessionPool.toKey(parameters);
+	}
+
+	/**
+	 * Return the node URL of a key, without the credentials.
+	 */
+	@Override
+	protected String toLabel(final String key) {
+		return StringUtils.substringBefore(key, "|");
+	}
+
+	/**
+	 * Return the catalog of a node, fetching it only when missing or too old.
+	 *
+	 * @param parameters The node parameters.
+	 * @param loader     The catalog loader.
+	 * @return The catalog of the node.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public SquashProjectCatalog get(final Map<String, String> parameters, final Loader loader) throws IOException {
+		return get(toKey(parameters), () -> loader.load(parameters));
+	}
+
+	/**
+	 * Return the catalog of a node, fetched again unless it has been fetched or reloaded during the reload interval.
+	 *
+	 * @param parameters The node parameters.
+	 * @param loader     The catalog loader.
+	 * @return The catalog of the node.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public SquashProjectCatalog reload(final Map<String, String> parameters, final Loader loader) throws IOException {
+		return reload(toKey(parameters), () -> loader.load(parameters));
+	}
+
+	/**
+	 * Return the cached catalog of a node without fetching it.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The cached catalog, or <code>null</code>.
+	 */
+	public SquashProjectCatalog peek(final Map<String, String> parameters) {
+		return peek(toKey(parameters));
+	}
+}
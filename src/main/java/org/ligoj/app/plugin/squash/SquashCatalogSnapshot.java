@@ -0,0 +1,324 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact binary snapshots of the project catalogs on local disk, one file per node, read back through a memory
+ * mapped buffer. The layout is: magic, format version, snapshot identifier, fetch time, high-water mark,
+ * reconciliation time, amount of projects, identifiers, then the length prefixed UTF-8 names. The cache keys hold a
+ * digest of the credentials, so they are never written: a snapshot is identified by an HMAC of its cache key with a
+ * secret generated for this installation.
+ */
+@Component
+@Slf4j
+public class SquashCatalogSnapshot {
+
+	/**
+	 * File header magic, "SQTC".
+	 */
+	private static final int MAGIC = 0x53515443;
+
+	/**
+	 * Format version.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Format version still holding the cache keys.
+	 */
+	private static final int VERSION_KEY = 1;
+
+	/**
+	 * HMAC algorithm of the snapshot identifiers.
+	 */
+	private static final String HMAC = "HmacSHA256";
+
+	/**
+	 * File of the secret of the snapshot identifiers, inside the snapshot directory.
+	 */
+	private static final String SECRET = ".secret";
+
+	/**
+	 * Size of the secret of the snapshot identifiers, in bytes.
+	 */
+	private static final int SECRET_SIZE = 32;
+
+	/**
+	 * Snapshot file extension.
+	 */
+	private static final String EXTENSION = ".catalog";
+
+	/**
+	 * Directory of the snapshot files. When empty, the snapshots are disabled.
+	 */
+	@Value("${service-req-squash-snapshot-dir:}")
+	private String directory = "";
+
+	/**
+	 * Indicate the snapshots are enabled.
+	 *
+	 * @return <code>true</code> when a snapshot directory is configured.
+	 */
+	public boolean isEnabled() {
+		return StringUtils.isNotBlank(directory);
+	}
+
+	/**
+	 * Secret of the snapshot identifiers, read or generated on first use.
+	 */
+	private SecretKeySpec secret;
+
+	/**
+	 * Return the snapshot identifier of a cache key: an HMAC of this key, so the credentials digest of the key cannot
+	 * be guessed from the snapshot files.
+	 *
+	 * @param key The cache key of the node.
+	 * @return The hexadecimal snapshot identifier.
+	 */
+	public String toId(final String key) {
+		try {
+			final var mac = Mac.getInstance(HMAC);
+			mac.init(getSecret());
+			return HexFormat.of().formatHex(mac.doFinal(key.getBytes(StandardCharsets.UTF_8)));
+		} catch (final GeneralSecurityException e) {
+			// HmacSHA256 is a mandatory algorithm of any JRE
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Return the secret of the snapshot identifiers. Without snapshot directory, the secret is only kept for this run.
+	 */
+	private synchronized SecretKeySpec getSecret() {
+		if (secret == null) {
+			secret = new SecretKeySpec(isEnabled() ? readSecret(Path.of(directory).resolve(SECRET)) : newSecret(),
+					HMAC);
+		}
+		return secret;
+	}
+
+	/**
+	 * Read the secret saved in the snapshot directory, or generate and save it, readable by its owner only. A new
+	 * secret does not match the previous snapshots, that are then no more restored.
+	 */
+	private byte[] readSecret(final Path file) {
+		try {
+			final var bytes = Files.readAllBytes(file);
+			if (bytes.length == SECRET_SIZE) {
+				return bytes;
+			}
+		} catch (final NoSuchFileException e) {
+			// First use of this directory
+		} catch (final IOException e) {
+			log.warn("Unable to read the Squash TM catalog snapshot secret {}", file, e);
+		}
+		final var bytes = newSecret();
+		try {
+			Files.createDirectories(file.getParent());
+			Files.deleteIfExists(file);
+			if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+				Files.createFile(file,
+						PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			}
+			Files.write(file, bytes);
+		} catch (final IOException e) {
+			log.warn("Unable to save the Squash TM catalog snapshot secret {}", file, e);
+		}
+		return bytes;
+	}
+
+	private byte[] newSecret() {
+		final var bytes = new byte[SECRET_SIZE];
+		new SecureRandom().nextBytes(bytes);
+		return bytes;
+	}
+
+	private Path toFile(final String id) {
+		return Path.of(directory).resolve(id + EXTENSION);
+	}
+
+	/**
+	 * Save the catalog of a node. The file is atomically replaced, and a failure is only logged.
+	 *
+	 * @param id      The snapshot identifier of the node, see {@link #toId(String)}.
+	 * @param catalog The catalog to save.
+	 */
+	public void write(final String id, final SquashProjectCatalog catalog) {
+		if (!isEnabled()) {
+			return;
+		}
+		final var file = toFile(id);
+		try {
+			final var bytes = new ByteArrayOutputStream(64 + catalog.size() * 32);
+			try (var out = new DataOutputStream(bytes)) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				writeString(out, id);
+				out.writeLong(catalog.getFetchedAt());
+				out.writeLong(catalog.getWatermark());
+				out.writeLong(catalog.getReconciledAt());
+				out.writeInt(catalog.size());
+				for (var i = 0; i < catalog.size(); i++) {
+					out.writeInt(catalog.getId(i));
+				}
+				for (var i = 0; i < catalog.size(); i++) {
+					writeString(out, catalog.getName(i));
+				}
+			}
+			Files.createDirectories(file.getParent());
+			final var tmp = Files.createTempFile(file.getParent(), "catalog", ".tmp");
+			Files.write(tmp, bytes.toByteArray());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			log.warn("Unable to save the Squash TM catalog snapshot {}", file, e);
+		}
+	}
+
+	private void writeString(final DataOutputStream out, final String value) throws IOException {
+		final var bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Delete the saved catalog of a node. A failure is only logged.
+	 *
+	 * @param id The snapshot identifier of the node.
+	 */
+	public void delete(final String id) {
+		if (isEnabled()) {
+			delete(toFile(id));
+		}
+	}
+
+	/**
+	 * Delete all saved catalogs.
+	 */
+	public void deleteAll() {
+		list().forEach(this::delete);
+	}
+
+	private void delete(final Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			log.warn("Unable to delete the Squash TM catalog snapshot {}", file, e);
+		}
+	}
+
+	/**
+	 * Read all saved catalogs. Unreadable snapshots are ignored, and the snapshots of the previous format holding
+	 * the cache keys are deleted.
+	 *
+	 * @return The saved catalogs by snapshot identifier.
+	 */
+	public Map<String, SquashProjectCatalog> readAll() {
+		final var result = new HashMap<String, SquashProjectCatalog>();
+		list().forEach(f -> {
+			if (read(f, result)) {
+				log.info("Delete Squash TM catalog snapshot {} of a previous format", f);
+				delete(f);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Return the snapshot files.
+	 */
+	private List<Path> list() {
+		final var dir = isEnabled() ? Path.of(directory) : null;
+		if (dir == null || !Files.isDirectory(dir)) {
+			return List.of();
+		}
+		try (var files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().endsWith(EXTENSION)).toList();
+		} catch (final IOException e) {
+			log.warn("Unable to list the Squash TM catalog snapshots of {}", dir, e);
+			return List.of();
+		}
+	}
+
+	/**
+	 * Read a snapshot file through a memory mapped buffer.
+	 *
+	 * @return <code>true</code> when the file is a snapshot of the previous format, to be deleted.
+	 */
+	private boolean read(final Path file, final Map<String, SquashProjectCatalog> result) {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			final var magic = buffer.getInt();
+			final var version = buffer.getInt();
+			if (magic == MAGIC && version == VERSION_KEY) {
+				return true;
+			}
+			if (magic != MAGIC || version != VERSION) {
+				log.info("Ignored Squash TM catalog snapshot {} with an unknown format", file);
+				return false;
+			}
+			final var id = readString(buffer);
+			final var fetchedAt = buffer.getLong();
+			final var watermark = buffer.getLong();
+			final var reconciledAt = buffer.getLong();
+			final var ids = new int[checkLength(buffer, buffer.getInt(), Integer.BYTES)];
+			buffer.asIntBuffer().get(ids);
+			buffer.position(buffer.position() + ids.length * Integer.BYTES);
+			final List<String> names = new ArrayList<>(ids.length);
+			for (var i = 0; i < ids.length; i++) {
+				names.add(readString(buffer));
+			}
+			result.put(id, new SquashProjectCatalog(ids, names, fetchedAt, watermark, reconciledAt, null));
+		} catch (final IOException | RuntimeException e) {
+			// Truncated or corrupted file
+			log.warn("Unable to read the Squash TM catalog snapshot {}", file, e);
+		}
+		return false;
+	}
+
+	/**
+	 * Check a length read from the snapshot fits in the remaining bytes.
+	 */
+	private int checkLength(final ByteBuffer buffer, final int length, final int size) {
+		if (length < 0 || length > buffer.remaining() / size) {
+			throw new IllegalStateException("Invalid length " + length);
+		}
+		return length;
+	}
+
+	private String readString(final ByteBuffer buffer) {
+		final var bytes = new byte[checkLength(buffer, buffer.getInt(), 1)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -3,10 +3,14 @@
  */
 package org.ligoj.app.plugin.squash;
 
+import org.apache.commons.lang3.Strings;
 import org.ligoj.bootstrap.core.curl.CurlProcessor;
 import org.ligoj.bootstrap.core.curl.HttpResponseCallback;
 import org.ligoj.bootstrap.core.curl.OnlyRedirectHttpResponseCallback;
 
+import lombok.Getter;
+import lombok.Setter;
+
 /**
  * SonarQube processor.
  */
@@ -17,4 +21,30 @@ public class SquashCurlProcessor extends CurlProcessor {
 	 */
 	public static final HttpResponseCallback LOGIN_CALLBACK = new OnlyRedirectHttpResponseCallback();
 
+	/**
+	 * Indicate the given response is the Squash TM login form. An expired session is redirected to this form, and
+	 * the followed redirection ends with a successful response.
+	 *
+	 * @param response The saved response. May be <code>null</code>.
+	 * @return <code>true</code> when the response is the login form.
+	 */
+	public static boolean isLoginPage(final String response) {
+		return response != null && Strings.CI.contains(response, "<form")
+				&& Strings.CI.contains(response, "name=\"password\"");
+	}
+
+	/**
+	 * When <code>true</code>, the cookie store of this processor holds an authenticated Squash TM session.
+	 */
+	@Getter
+	@Setter
+	private boolean authenticated;
+
+	/**
+	 * Last time this processor has been released to the pool, in milliseconds.
+	 */
+	@Getter
+	@Setter
+	private long lastUsed;
+
 }
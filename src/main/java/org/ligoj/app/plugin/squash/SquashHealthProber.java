@@ -0,0 +1,238 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.ws.rs.WebApplicationException;
+
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Background health prober of the Squash TM nodes. A node is registered by its first status check, then probed at a
+ * jittered interval, and its last result is served to the next status checks. A node whose status is no more
+ * requested is forgotten.
+ */
+@Component
+@Slf4j
+public class SquashHealthProber {
+
+	/**
+	 * Node probe, failing with an exception when the node is down.
+	 */
+	@FunctionalInterface
+	public interface Probe {
+
+		/**
+		 * Check the node.
+		 *
+		 * @param parameters The node parameters.
+		 * @param live       <code>true</code> for a check requested now, <code>false</code> for a background
+		 *                   probe.
+		 * @param count      The amount of previous probes of this node since it is probed.
+		 */
+		void check(Map<String, String> parameters, boolean live, int count);
+	}
+
+	/**
+	 * A probe result.
+	 *
+	 * @param failure   The failure of the probe, <code>null</code> when the node is up.
+	 * @param checkedAt The probe time, in milliseconds.
+	 */
+	public record Status(RuntimeException failure, long checkedAt) {
+
+		/**
+		 * Indicate the node is up.
+		 *
+		 * @return <code>true</code> when the probe succeeded.
+		 */
+		public boolean isUp() {
+			return failure == null;
+		}
+	}
+
+	/**
+	 * A probed node.
+	 */
+	private static final class Node {
+		private final Map<String, String> parameters;
+		private final Probe probe;
+		private volatile Status status;
+		private volatile long requestedAt;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * Amount of probes of this node, forgotten with it.
+		 */
+		private final AtomicInteger probes = new AtomicInteger();
+
+		private Node(final Map<String, String> parameters, final Probe probe) {
+			this.parameters = parameters;
+			this.probe = probe;
+		}
+	}
+
+	/**
+	 * Interval between two probes of a node, in milliseconds. When zero or negative, the background probes are
+	 * disabled and each status check is live.
+	 */
+	@Value("${service-req-squash-probe-interval:60000}")
+	private long interval = 60000;
+
+	/**
+	 * Random variation of the interval, as a ratio of the interval, spreading the probes of the nodes.
+	 */
+	@Value("${service-req-squash-probe-jitter:0.2}")
+	private double jitter = 0.2;
+
+	/**
+	 * Amount of intervals without status request after which a node is no more probed.
+	 */
+	@Value("${service-req-squash-probe-idle:10}")
+	private int idle = 10;
+
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	/**
+	 * Probed nodes by node and credentials.
+	 */
+	private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+	/**
+	 * Probe scheduler.
+	 */
+	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, r -> {
+		final var thread = new Thread(r, "squash-prober");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Return the status of a node, from the last background probe when recent enough, or from a live probe.
+	 *
+	 * @param parameters The node parameters.
+	 * @param probe      The node probe.
+	 * @param live       When <code>true</code>, the node is probed now, ignoring the last result.
+	 * @return <code>true</code> when the node is up.
+	 * @throws RuntimeException A new exception caused by the failure of the probe when the node is down.
+	 */
+	public boolean check(final Map<String, String> parameters, final Probe probe, final boolean live) {
+		if (interval <= 0) {
+			// Disabled prober
+			probe.check(parameters, true, 0);
+			return true;
+		}
+		final var now = System.currentTimeMillis();
+		final var key = sessionPool.toKey(parameters);
+		final var node = nodes.computeIfAbsent(key, k -> new Node(new HashMap<>(parameters), probe));
+		node.requestedAt = now;
+		var status = node.status;
+		if (live || status == null || now - status.checkedAt() >= 2 * interval) {
+			// Missing, outdated or unwanted status
+			status = probe(node, live);
+			if (node.scheduled.compareAndSet(false, true)) {
+				schedule(key, node);
+			}
+		}
+		if (status.failure() != null) {
+			throw newFailure(status.failure());
+		}
+		return true;
+	}
+
+	/**
+	 * Return a new exception caused by a probe failure, so the shared failure is never thrown, and so never altered,
+	 * by the concurrent status checks. The validation errors and the HTTP response of the failure are kept.
+	 */
+	private static RuntimeException newFailure(final RuntimeException failure) {
+		if (failure instanceof ValidationJsonException validation) {
+			final var result = new ValidationJsonException(validation.getMessage());
+			result.getErrors().putAll(validation.getErrors());
+			result.initCause(failure);
+			return result;
+		}
+		if (failure instanceof WebApplicationException web) {
+			return new WebApplicationException(web.getMessage(), failure, web.getResponse());
+		}
+		return new IllegalStateException(failure.getMessage(), failure);
+	}
+
+	/**
+	 * Return the last probe result of a node.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The last probe result, or <code>null</code> when this node is not probed.
+	 */
+	public Status getStatus(final Map<String, String> parameters) {
+		final var node = nodes.get(sessionPool.toKey(parameters));
+		return node == null ? null : node.status;
+	}
+
+	private Status probe(final Node node, final boolean live) {
+		Status status;
+		try {
+			node.probe.check(node.parameters, live, node.probes.getAndIncrement());
+			status = new Status(null, System.currentTimeMillis());
+		} catch (final RuntimeException e) {
+			status = new Status(e, System.currentTimeMillis());
+		}
+		node.status = status;
+		return status;
+	}
+
+	/**
+	 * Schedule the next probe of a node.
+	 */
+	private void schedule(final String key, final Node node) {
+		final var delay = Math.max(1, (long) (interval * (1 + jitter * ThreadLocalRandom.current().nextDouble(-1, 1))));
+		scheduler.schedule(() -> {
+			if (nodes.get(key) != node) {
+				// Forgotten node
+				return;
+			}
+			if (System.currentTimeMillis() - node.requestedAt > idle * interval) {
+				// No more requested node
+				nodes.remove(key, node);
+				return;
+			}
+			if (!probe(node, false).isUp()) {
+				log.info("Squash TM node {} is down: {}", node.parameters.get(SquashPluginResource.PARAMETER_URL),
+						node.status.failure().getMessage());
+			}
+			schedule(key, node);
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Forget all nodes.
+	 */
+	public void clear() {
+		nodes.clear();
+	}
+
+	/**
+	 * Stop the probes.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,531 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpCookie;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Non-blocking Squash TM transport based on a shared and connection pooled {@link HttpClient} running on virtual
+ * threads. The authenticated sessions are kept as cookies by node and credentials, and the login follows the same
+ * redirect-only acceptance than {@link SquashCurlProcessor#LOGIN_CALLBACK}. The resources are negotiated as gzip or
+ * deflate compressed, and are decompressed while they are read. A deadline can be shared by the login
+ * and the fetch of a resource, and an idempotent fetch can be hedged by a second request sent once the p95 latency
+ * of the node is exceeded.
+ */
+@Component
+public class SquashHttpClient {
+
+	/**
+	 * Timeout of each request, in milliseconds.
+	 */
+	@Value("${service-req-squash-timeout:30000}")
+	private long timeout = 30000;
+
+	/**
+	 * When <code>true</code>, the hedgeable requests not answered after the p95 latency of their node are sent a
+	 * second time, and the first response is used.
+	 */
+	@Value("${service-req-squash-hedge:false}")
+	@Getter
+	private boolean hedging;
+
+	/**
+	 * Minimal delay before sending a hedged request, in milliseconds.
+	 */
+	@Value("${service-req-squash-hedge-min-delay:20}")
+	private long hedgeMinDelay = 20;
+
+	/**
+	 * No deadline: each request is bound by the timeout only.
+	 */
+	public static final long NO_DEADLINE = Long.MIN_VALUE;
+
+	/**
+	 * Buffer size of the decompression.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Amount of recent latencies kept by node.
+	 */
+	private static final int LATENCY_SAMPLES = 128;
+
+	/**
+	 * Minimal amount of latencies of a node before hedging its requests.
+	 */
+	private static final int HEDGE_MIN_SAMPLES = 20;
+
+	/**
+	 * Marker body of a request rejected because of an expired session. Never read.
+	 */
+	private static final InputStream EXPIRED = InputStream.nullInputStream();
+
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	/**
+	 * Virtual thread executor of the client and its dependent stages.
+	 */
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	/**
+	 * The shared client, with keep-alive connections and the default protocol version negotiation.
+	 */
+	private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER)
+			.proxy(ProxySelector.getDefault()).connectTimeout(Duration.ofSeconds(10)).executor(executor).build();
+
+	/**
+	 * Session cookies by node and credentials.
+	 */
+	private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Recent latencies of the successful requests, by node URL.
+	 */
+	private final Map<String, Latencies> latencies = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the base URL of a node, ending with a slash.
+	 */
+	private String toUrl(final Map<String, String> parameters) {
+		return Strings.CS.appendIfMissing(parameters.get(SquashPluginResource.PARAMETER_URL), "/");
+	}
+
+	/**
+	 * Authenticate to the node and return the session cookies.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The session cookies, or <code>null</code> when the authentication failed.
+	 */
+	private CompletableFuture<String> login(final Map<String, String> parameters, final long deadline) {
+		final var form = "username="
+				+ URLEncoder.encode(Objects.toString(parameters.get(SquashPluginResource.PARAMETER_USER), ""),
+						StandardCharsets.UTF_8)
+				+ "&password=" + URLEncoder.encode(
+						StringUtils.trimToEmpty(parameters.get(SquashPluginResource.PARAMETER_PASSWORD)),
+						StandardCharsets.UTF_8);
+		final Duration budget;
+		try {
+			budget = budget(deadline);
+		} catch (final HttpTimeoutException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		final var request = HttpRequest.newBuilder(URI.create(toUrl(parameters) + "login")).timeout(budget)
+				.header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(form)).build();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> {
+			if (response.statusCode() != 302) {
+				// Only a redirection is a successful login
+				return null;
+			}
+			final var cookies = response.headers().allValues("Set-Cookie").stream().map(HttpCookie::parse)
+					.flatMap(List::stream).map(c -> c.getName() + "=" + c.getValue())
+					.collect(Collectors.joining("; "));
+			sessions.put(sessionPool.toKey(parameters), cookies);
+			return cookies;
+		});
+	}
+
+	/**
+	 * Return the session cookies of the node, authenticating only when there is no current session.
+	 */
+	private CompletableFuture<String> session(final Map<String, String> parameters, final long deadline) {
+		final var cookies = sessions.get(sessionPool.toKey(parameters));
+		return cookies == null ? login(parameters, deadline) : CompletableFuture.completedFuture(cookies);
+	}
+
+	/**
+	 * Return the timeout of the next request: the time left before the deadline, bounded by the request timeout.
+	 *
+	 * @param deadline The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 * @return The timeout of the next request.
+	 * @throws HttpTimeoutException When the deadline is exceeded.
+	 */
+	private Duration budget(final long deadline) throws HttpTimeoutException {
+		if (deadline == NO_DEADLINE) {
+			return Duration.ofMillis(timeout);
+		}
+		final var left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (left <= 0) {
+			throw new HttpTimeoutException("Squash TM deadline exceeded");
+		}
+		return Duration.ofMillis(Math.min(left, timeout));
+	}
+
+	/**
+	 * Return the deadline of an operation starting now.
+	 *
+	 * @param budget The time budget of the operation, in milliseconds. When zero or negative, there is no deadline.
+	 * @return The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 */
+	public static long deadline(final long budget) {
+		return budget > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget) : NO_DEADLINE;
+	}
+
+	/**
+	 * Indicate an authenticated session is held for the node.
+	 *
+	 * @param parameters The node parameters.
+	 * @return <code>true</code> when the last login to this node succeeded.
+	 */
+	public boolean hasSession(final Map<String, String> parameters) {
+		return sessions.containsKey(sessionPool.toKey(parameters));
+	}
+
+	/**
+	 * Return a Squash resource within a deadline shared by the login and the fetch: the fetch gets only the time
+	 * left by the login. A reused session rejected by Squash TM with a 401, a 403 or a redirection to the login
+	 * page is considered as expired: a new login is performed once. Any other failure is not retried. The response
+	 * is negotiated as gzip or deflate compressed, and is decompressed while it is read.
+	 *
+	 * @param parameters The node parameters.
+	 * @param resource   The requested resource URL, relative to the node URL.
+	 * @param deadline   The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 * @param hedged     When <code>true</code> and the hedging is enabled, the fetch is an idempotent request sent a
+	 *                   second time once the p95 latency of the node is exceeded.
+	 * @return The decompressed response body to be closed by the caller, or <code>null</code> when the
+	 *         authentication failed or the resource is not available. Completed with a {@link HttpTimeoutException}
+	 *         when the deadline is exceeded.
+	 */
+	private CompletableFuture<InputStream> get(final Map<String, String> parameters, final String resource,
+			final long deadline, final boolean hedged) {
+		final var reused = sessions.containsKey(sessionPool.toKey(parameters));
+		return get(parameters, resource, reused, deadline, hedged).thenCompose(body -> {
+			if (body == EXPIRED && reused) {
+				// Expired session, retry once with a new login
+				sessions.remove(sessionPool.toKey(parameters));
+				return get(parameters, resource, false, deadline, hedged)
+						.thenApply(retried -> retried == EXPIRED ? null : retried);
+			}
+			return CompletableFuture.completedFuture(body == EXPIRED ? null : body);
+		});
+	}
+
+	private CompletableFuture<InputStream> get(final Map<String, String> parameters, final String resource,
+			final boolean reused, final long deadline, final boolean hedged) {
+		return (reused ? session(parameters, deadline) : login(parameters, deadline)).thenCompose(cookies -> {
+			if (cookies == null) {
+				return CompletableFuture.<InputStream>completedFuture(null);
+			}
+			final Supplier<CompletableFuture<InputStream>> send = () -> send(parameters, resource, cookies, deadline);
+			return hedging && hedged ? hedge(parameters, send) : send.get();
+		});
+	}
+
+	/**
+	 * Send an authenticated request, and record its latency when successful. The deadline, or the request timeout
+	 * without deadline, also bounds the read of the response body: the body is closed once it is exceeded.
+	 *
+	 * @return The response body, <code>null</code> when the resource is not available, or {@link #EXPIRED} when the
+	 *         session is rejected.
+	 */
+	private CompletableFuture<InputStream> send(final Map<String, String> parameters, final String resource,
+			final String cookies, final long deadline) {
+		final var request = HttpRequest.newBuilder(URI.create(toUrl(parameters) + resource)).GET()
+				.header("Accept-Encoding", "gzip, deflate");
+		try {
+			request.timeout(budget(deadline));
+		} catch (final HttpTimeoutException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		if (!cookies.isEmpty()) {
+			request.header("Cookie", cookies);
+		}
+		final var start = System.nanoTime();
+		return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream()).thenApply(response -> {
+			if (response.statusCode() != 200) {
+				discard(response.body());
+				return isExpired(response) ? EXPIRED : null;
+			}
+			latencies.computeIfAbsent(toUrl(parameters), k -> new Latencies()).add(System.nanoTime() - start);
+			return decode(response, new DeadlineInputStream(response.body(),
+					deadline == NO_DEADLINE ? deadline(timeout) : deadline));
+		});
+	}
+
+	/**
+	 * Indicate the response rejects the session: unauthorized, forbidden, or redirected to the login page.
+	 */
+	private boolean isExpired(final HttpResponse<?> response) {
+		final var status = response.statusCode();
+		return status == 401 || status == 403 || status == 302 && response.headers().firstValue("Location")
+				.map(l -> Strings.CS.removeEnd(l, "/")).filter(l -> l.endsWith("login")).isPresent();
+	}
+
+	/**
+	 * Return the body of a response, decompressed according to its content encoding.
+	 *
+	 * @param response The received response.
+	 * @param body     The raw body of this response.
+	 * @return The decompressed body.
+	 */
+	private InputStream decode(final HttpResponse<InputStream> response, final InputStream body) {
+		final var encoding = response.headers().firstValue("Content-Encoding").orElse("").trim();
+		try {
+			if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+				return new GZIPInputStream(body, BUFFER_SIZE);
+			}
+			if ("deflate".equalsIgnoreCase(encoding)) {
+				return new InflaterInputStream(body, new Inflater(), BUFFER_SIZE) {
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							// Not owned by the parent stream
+							inf.end();
+						}
+					}
+				};
+			}
+		} catch (final IOException e) {
+			discard(body);
+			throw new UncheckedIOException(e);
+		}
+		return body;
+	}
+
+	/**
+	 * Send a request, and send it a second time when not answered after the p95 latency of the node. The first
+	 * response is used. The requests are hedged only once enough latencies of this node are known.
+	 */
+	private CompletableFuture<InputStream> hedge(final Map<String, String> parameters,
+			final Supplier<CompletableFuture<InputStream>> send) {
+		final var p95 = latencies.getOrDefault(toUrl(parameters), new Latencies()).getP95();
+		if (p95 < 0) {
+			return send.get();
+		}
+		final var result = new CompletableFuture<InputStream>();
+		final var pending = new AtomicInteger(1);
+		final BiConsumer<InputStream, Throwable> complete = (body, error) -> {
+			if (error == null) {
+				if (!result.complete(body) && body != EXPIRED) {
+					// The other request has already won
+					discard(body);
+				}
+			} else if (pending.decrementAndGet() == 0) {
+				// All requests have failed
+				result.completeExceptionally(error);
+			}
+		};
+		send.get().whenComplete(complete);
+		CompletableFuture.delayedExecutor(Math.max(hedgeMinDelay, TimeUnit.NANOSECONDS.toMillis(p95)),
+				TimeUnit.MILLISECONDS, executor).execute(() -> {
+					if (!result.isDone()) {
+						pending.incrementAndGet();
+						send.get().whenComplete(complete);
+					}
+				});
+		return result;
+	}
+
+	/**
+	 * Release the body of a rejected response.
+	 */
+	private InputStream discard(final InputStream body) {
+		if (body != null) {
+			try (body) {
+				// Nothing to read
+			} catch (final IOException e) {
+				// Ignore
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return a Squash resource as a string.
+	 *
+	 * @param parameters The node parameters.
+	 * @param resource   The requested resource URL, relative to the node URL.
+	 * @return The resource content, or <code>null</code> when not available.
+	 */
+	public CompletableFuture<String> getString(final Map<String, String> parameters, final String resource) {
+		return getString(parameters, resource, NO_DEADLINE, false);
+	}
+
+	/**
+	 * Return a Squash resource as a string within a deadline.
+	 *
+	 * @param parameters The node parameters.
+	 * @param resource   The requested resource URL, relative to the node URL.
+	 * @param deadline   The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 * @param hedged     When <code>true</code>, the resource is idempotent and its fetch may be hedged.
+	 * @return The UTF-8 decoded resource content, or <code>null</code> when not available.
+	 */
+	public CompletableFuture<String> getString(final Map<String, String> parameters, final String resource,
+			final long deadline, final boolean hedged) {
+		return get(parameters, resource, deadline, hedged).thenApply(body -> {
+			if (body == null) {
+				return null;
+			}
+			try (body) {
+				return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Return a Squash resource as a stream to be closed by the caller.
+	 *
+	 * @param parameters The node parameters.
+	 * @param resource   The requested resource URL, relative to the node URL.
+	 * @return The decompressed resource content, or <code>null</code> when not available.
+	 */
+	public CompletableFuture<InputStream> getStream(final Map<String, String> parameters, final String resource) {
+		return get(parameters, resource, NO_DEADLINE, false);
+	}
+
+	/**
+	 * Return a Squash resource as a stream to be closed by the caller, within a deadline.
+	 *
+	 * @param parameters The node parameters.
+	 * @param resource   The requested resource URL, relative to the node URL.
+	 * @param deadline   The deadline as a {@link System#nanoTime()} value, or {@link #NO_DEADLINE}.
+	 * @param hedged     When <code>true</code>, the resource is idempotent and its fetch may be hedged.
+	 * @return The decompressed resource content, or <code>null</code> when not available.
+	 */
+	public CompletableFuture<InputStream> getStream(final Map<String, String> parameters, final String resource,
+			final long deadline, final boolean hedged) {
+		return get(parameters, resource, deadline, hedged);
+	}
+
+	/**
+	 * Return the virtual thread executor of this client.
+	 *
+	 * @return The executor.
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Forget all sessions.
+	 */
+	public void clear() {
+		sessions.clear();
+		latencies.clear();
+	}
+
+	/**
+	 * Stop the executor.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Response body closed once its deadline is exceeded. The pending and next reads then fail with a
+	 * {@link HttpTimeoutException}, since the {@link HttpClient} has no read timeout once the headers are received.
+	 */
+	private final class DeadlineInputStream extends FilterInputStream {
+		private volatile boolean expired;
+
+		private DeadlineInputStream(final InputStream body, final long deadline) {
+			super(body);
+			final var left = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+			CompletableFuture.delayedExecutor(left, TimeUnit.MILLISECONDS, executor).execute(() -> {
+				expired = true;
+				discard(in);
+			});
+		}
+
+		private IOException check(final IOException e) {
+			if (expired) {
+				final var exceeded = new HttpTimeoutException("Squash TM deadline exceeded while reading the response");
+				exceeded.initCause(e);
+				return exceeded;
+			}
+			return e;
+		}
+
+		@Override
+		public int read() throws IOException {
+			try {
+				return super.read();
+			} catch (final IOException e) {
+				throw check(e);
+			}
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			try {
+				return super.read(b, off, len);
+			} catch (final IOException e) {
+				throw check(e);
+			}
+		}
+	}
+
+	/**
+	 * Ring buffer of the recent latencies of a node.
+	 */
+	private static final class Latencies {
+		private final long[] values = new long[LATENCY_SAMPLES];
+		private int next;
+		private int size;
+
+		private synchronized void add(final long nanos) {
+			values[next] = nanos;
+			next = (next + 1) % values.length;
+			size = Math.min(size + 1, values.length);
+		}
+
+		/**
+		 * Return the p95 latency, in nanoseconds, or <code>-1</code> when not enough latencies are known.
+		 */
+		private synchronized long getP95() {
+			if (size < HEDGE_MIN_SAMPLES) {
+				return -1;
+			}
+			final var sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			return sorted[(int) Math.ceil(size * 0.95) - 1];
+		}
+	}
+}
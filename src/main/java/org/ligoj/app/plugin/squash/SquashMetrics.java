@@ -0,0 +1,121 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.Strings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers and counters of the Squash TM exchanges, tagged by node. The instruments are registered once against the
+ * application's meter registry, or the global one when there is none, and then reused.
+ */
+@Component
+public class SquashMetrics {
+
+	/**
+	 * Duration of the Squash TM exchanges, tagged by node and operation.
+	 */
+	public static final String TIMER = "ligoj.squash.requests";
+
+	/**
+	 * Amount of validation failures, tagged by node and validation key.
+	 */
+	public static final String FAILURES = "ligoj.squash.failures";
+
+	/**
+	 * Measured action.
+	 *
+	 * @param <T> The result type.
+	 * @param <E> The failure type.
+	 */
+	@FunctionalInterface
+	public interface Action<T, E extends Exception> {
+
+		/**
+		 * Run the action.
+		 *
+		 * @return The action result.
+		 * @throws E When the action failed.
+		 */
+		T run() throws E;
+	}
+
+	@Autowired(required = false)
+	private MeterRegistry registry = Metrics.globalRegistry;
+
+	/**
+	 * Registered timers by operation and node.
+	 */
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	/**
+	 * Registered counters by validation key and node.
+	 */
+	private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the node tag of the given parameters.
+	 */
+	private static String toNode(final Map<String, String> parameters) {
+		return Strings.CS.appendIfMissing(Objects.toString(parameters.get(SquashPluginResource.PARAMETER_URL), ""), "/");
+	}
+
+	/**
+	 * Return the timer of an operation.
+	 *
+	 * @param operation The operation name.
+	 * @param node      The remote server.
+	 * @return The timer.
+	 */
+	public Timer timer(final String operation, final String node) {
+		return timers.computeIfAbsent(operation + "|" + node, k -> Timer.builder(TIMER)
+				.description("Squash TM exchanges").tag("node", node).tag("operation", operation).register(registry));
+	}
+
+	/**
+	 * Run and measure an operation against a node.
+	 *
+	 * @param operation  The operation name.
+	 * @param parameters The node parameters.
+	 * @param action     The measured action.
+	 * @param <T>        The result type.
+	 * @param <E>        The failure type.
+	 * @return The action result.
+	 * @throws E When the action failed.
+	 */
+	public <T, E extends Exception> T record(final String operation, final Map<String, String> parameters,
+			final Action<T, E> action) throws E {
+		final var timer = timer(operation, toNode(parameters));
+		final var start = System.nanoTime();
+		try {
+			return action.run();
+		} finally {
+			timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Count a validation failure of a node.
+	 *
+	 * @param parameters The node parameters.
+	 * @param key        The validation key, such as <code>squash-login</code>.
+	 */
+	public void failure(final Map<String, String> parameters, final String key) {
+		final var node = toNode(parameters);
+		counters.computeIfAbsent(key + "|" + node, k -> Counter.builder(FAILURES)
+				.description("Squash TM validation failures").tag("node", node).tag("key", key).register(registry))
+				.increment();
+	}
+}
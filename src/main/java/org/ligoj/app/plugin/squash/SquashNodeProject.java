@@ -0,0 +1,30 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Squash TM project with the node hosting it.
+ */
+@Getter
+@Setter
+public class SquashNodeProject extends SquashProject {
+
+	/**
+	 * SID
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Node identifier.
+	 */
+	private String node;
+
+	/**
+	 * Node name.
+	 */
+	private String nodeName;
+}
@@ -3,18 +3,25 @@
  */
 package org.ligoj.app.plugin.squash;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.NewCookie;
 import jakarta.ws.rs.core.Response;
-import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.StreamingOutput;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
 import org.ligoj.app.api.SubscriptionStatusWithData;
+import org.ligoj.app.dao.NodeRepository;
+import org.ligoj.app.dao.SubscriptionRepository;
+import org.ligoj.app.model.Node;
 import org.ligoj.app.plugin.req.ReqResource;
 import org.ligoj.app.plugin.req.ReqServicePlugin;
 import org.ligoj.app.resource.plugin.AbstractToolPluginResource;
@@ -22,33 +29,91 @@ import org.ligoj.app.resource.plugin.BitBucketTag;
 import org.ligoj.app.resource.plugin.BitBucketTags;
 import org.ligoj.bootstrap.core.curl.CurlProcessor;
 import org.ligoj.bootstrap.core.curl.CurlRequest;
+import org.ligoj.bootstrap.core.security.SecurityHelper;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Squash TM resource.
  */
 @Path(SquashPluginResource.URL)
 @Service
+@Slf4j
 @Produces(MediaType.APPLICATION_JSON)
 public class SquashPluginResource extends AbstractToolPluginResource implements ReqServicePlugin {
 
-	private static final TypeReference<TableItem<SquashProject>> VALUE_TYPE_REF = new TypeReference<>() {
-		// Nothing to override
-	};
+	/**
+	 * Resource of the whole project listing.
+	 */
+	private static final String PROJECTS_LISTING = "generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000";
+
+	/**
+	 * Small authenticated resource of the light probes.
+	 */
+	private static final String LIGHT_PROBE = "generic-projects?sEcho=1&iDisplayStart=0&iDisplayLength=1";
+
+	/**
+	 * Page size of the delta synchronization of the catalogs.
+	 */
+	private static final int DELTA_PAGE_SIZE = 100;
+
+	/**
+	 * Prefix of the requirement pages of a project.
+	 */
+	private static final String REQUIREMENTS_API = "api/rest/latest/projects/";
 
 	/**
-	 * Squash TM version tags
+	 * Page size of the requirement export.
 	 */
-	private static final String VERSION_TAG_START = "<label>Version</label><span>";
-	private static final String VERSION_TAG_END = "</span>";
+	private static final int EXPORT_PAGE_SIZE = 500;
+
+	/**
+	 * Newline-delimited JSON media type.
+	 */
+	private static final String NDJSON = "application/x-ndjson";
+
+	/**
+	 * Default page size of the project search.
+	 */
+	private static final String DEFAULT_PAGE_SIZE = "20";
+
+	/**
+	 * Maximal page size of the project search.
+	 */
+	private static final int MAX_PAGE_SIZE = 500;
 
 	/**
 	 * Plug-in key.
@@ -66,6 +131,111 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	@Value("${service-req-squash-server:https://api.bitbucket.org}")
 	private String publicServer;
 
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	@Autowired
+	protected SquashCatalogCache catalogCache;
+
+	@Autowired
+	protected SquashVersionCache versionCache;
+
+	@Autowired
+	protected SquashHttpClient httpClient;
+
+	@Autowired
+	protected SquashStatisticsCache statisticsCache;
+
+	@Autowired
+	protected SquashRequestCoalescer coalescer;
+
+	@Autowired
+	protected SquashBulkhead bulkhead;
+
+	@Autowired
+	protected SquashMetrics metrics;
+
+	@Autowired
+	protected SquashRedirectCache redirectCache;
+
+	@Autowired
+	protected SquashHealthProber prober;
+
+	/**
+	 * Amount of background probes of a node for one full administration access
+	 * check. When <code>1</code> or less, each probe is a full check.
+	 */
+	@Value("${service-req-squash-probe-full-every:1}")
+	private int fullProbeEvery = 1;
+
+	/**
+	 * When <code>true</code>, the catalogs are refreshed with the projects created
+	 * or modified since the previous fetch only.
+	 */
+	@Value("${service-req-squash-catalog-delta:false}")
+	private boolean deltaSync;
+
+	/**
+	 * Interval between two full fetches of a catalog with the delta
+	 * synchronization, catching the deleted projects, in milliseconds.
+	 */
+	@Value("${service-req-squash-catalog-full-sync:86400000}")
+	private long fullSyncInterval = 86400000;
+
+	/**
+	 * Time budget of a resource fetch shared by the login and the fetch, in milliseconds. When positive or when the
+	 * hedging is enabled, the resources are fetched with the non-blocking transport. When zero or negative, each
+	 * request is only bound by its own timeout.
+	 */
+	@Value("${service-req-squash-deadline:0}")
+	private long deadline;
+
+	/**
+	 * Date format of the Squash TM listings.
+	 */
+	private DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+	/**
+	 * Set the date format of the Squash TM listings.
+	 *
+	 * @param pattern The date pattern.
+	 */
+	@Value("${service-req-squash-date-format:dd/MM/yyyy HH:mm}")
+	public void setDateFormat(final String pattern) {
+		this.dateFormat = DateTimeFormatter.ofPattern(pattern);
+	}
+
+	@Autowired
+	private SecurityHelper securityHelper;
+
+	@Autowired
+	private SubscriptionRepository subscriptionRepository;
+
+	@Autowired
+	private NodeRepository nodeRepository;
+
+	/**
+	 * Default deadline of the search across all nodes, in milliseconds.
+	 */
+	@Value("${service-req-squash-search-timeout:5000}")
+	private long searchTimeout = 5000;
+
+	/**
+	 * Shared JSON mapper.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * Client of the public server, sharing its connections.
+	 */
+	private static final HttpClient PUBLIC_CLIENT = HttpClient.newBuilder().proxy(ProxySelector.getDefault())
+			.connectTimeout(Duration.ofSeconds(10)).build();
+
+	/**
+	 * Timeout of the requests sent to the public server.
+	 */
+	private static final Duration PUBLIC_SERVER_TIMEOUT = Duration.ofSeconds(20);
+
 	/**
 	 * Squash TM username able to connect to instance.
 	 */
@@ -103,17 +273,25 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 */
 	protected SquashProject validateProject(final Map<String, String> parameters) throws IOException {
 		// Get project's configuration
-		final int id = Integer.parseInt(ObjectUtils.getIfNull(parameters.get(PARAMETER_PROJECT), "0"));
+		final int id = getProjectId(parameters);
 		final SquashProject result = getProject(parameters, id);
 
 		if (result == null) {
 			// Invalid id
+			metrics.failure(parameters, "squash-project");
 			throw new ValidationJsonException(PARAMETER_PROJECT, "squash-project", id);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Return the configured Squash TM project identifier.
+	 */
+	private int getProjectId(final Map<String, String> parameters) {
+		return Integer.parseInt(ObjectUtils.getIfNull(parameters.get(PARAMETER_PROJECT), "0"));
+	}
+
 	/**
 	 * Validate the basic REST connectivity to Squash.
 	 *
@@ -124,22 +302,81 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 		final String url = Strings.CS.appendIfMissing(parameters.get(PARAMETER_URL), "/");
 
 		// Check access
-		CurlProcessor.validateAndClose(url + "login", PARAMETER_URL, "squash-connection");
+		try (var permit = bulkhead.acquire(parameters)) {
+			CurlProcessor.validateAndClose(url + "login", PARAMETER_URL, "squash-connection");
+		}
 
-		// Authentication request
-		try (SquashCurlProcessor curl = new SquashCurlProcessor()) {
-			if (!curl.process(authenticate(parameters, url))) {
-				throw new ValidationJsonException(PARAMETER_USER, "squash-login");
+		// Check the user has enough rights to access to the administration page
+		final String version = metrics.record("admin", parameters, () -> fetchVersion(parameters, true));
+		if (version == null) {
+			metrics.failure(parameters, "squash-admin");
+			throw new ValidationJsonException(PARAMETER_USER, "squash-admin");
+		}
+		versionCache.putVersion(parameters, version);
+		return version;
+	}
+
+	/**
+	 * Process a request within a pooled authenticated session. A reused session redirected to the login form is
+	 * considered as expired: the idle sessions of this node are discarded and a new login is performed once. Any other
+	 * failure, such as a missing resource or a forbidden page, keeps the session. The concurrent exchanges with a node are bounded by {@link SquashBulkhead}.
+	 *
+	 * @param parameters  The node parameters.
+	 * @param request     The request to process.
+	 * @param failOnLogin When <code>true</code>, an authentication failure raises a validation error instead of
+	 *                    returning <code>false</code>.
+	 * @param bulk        When <code>true</code>, the request transfers a large content and does not adapt the
+	 *                    concurrency limit of the node.
+	 * @return <code>true</code> when the request succeeded.
+	 * @throws jakarta.ws.rs.ServiceUnavailableException When the node is saturated.
+	 */
+	protected boolean process(final Map<String, String> parameters, final CurlRequest request,
+			final boolean failOnLogin, final boolean bulk) {
+		try (var permit = bulkhead.acquire(parameters, !bulk)) {
+			return processSession(parameters, request, failOnLogin);
+		}
+	}
+
+	/**
+	 * Process a request within a pooled authenticated session, without concurrency limit.
+	 */
+	private boolean processSession(final Map<String, String> parameters, final CurlRequest request,
+			final boolean failOnLogin) {
+		final String url = parameters.get(PARAMETER_URL);
+		for (var attempt = 0; attempt < 2; attempt++) {
+			final SquashCurlProcessor curl = sessionPool.acquire(parameters);
+			final boolean reused = curl.isAuthenticated();
+			if (!reused && !metrics.record("login", parameters, () -> curl.process(authenticate(parameters, url)))) {
+				curl.close();
+				metrics.failure(parameters, "squash-login");
+				if (failOnLogin) {
+					throw new ValidationJsonException(PARAMETER_USER, "squash-login");
+				}
+				return false;
+			}
+			curl.setAuthenticated(true);
+			final boolean processed = curl.process(request);
+			final boolean expired = SquashCurlProcessor.isLoginPage(request.getResponse());
+			if (processed && !expired) {
+				sessionPool.release(parameters, curl);
+				return true;
 			}
 
-			// Check the user has enough rights to access to the administration page
-			final CurlRequest admin = new CurlRequest("GET", url + "administration", null);
-			admin.setSaveResponse(true);
-			if (!curl.process(admin)) {
-				throw new ValidationJsonException(PARAMETER_USER, "squash-admin");
+			if (!expired) {
+				// The failure is not related to the session
+				sessionPool.release(parameters, curl);
+				return false;
+			}
+			curl.close();
+			if (!reused) {
+				// Fresh session rejected
+				return false;
 			}
-			return getVersion(admin.getResponse());
+
+			// Expired reused session, the other idle sessions of this node cannot be trusted anymore
+			sessionPool.evict(parameters);
 		}
+		return false;
 	}
 
 	/**
@@ -162,30 +399,303 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 * @return The resource content.
 	 */
 	protected String getResource(final Map<String, String> parameters, final String resource) {
-		return getResource(new SquashCurlProcessor(), parameters, parameters.get(PARAMETER_URL), resource);
+		return fetch(parameters, resource, false);
 	}
 
 	/**
-	 * Return a Squash's resource. Return <code>null</code> when the resource is not
-	 * found.
+	 * Return the key of a coalesced request. The login failure policy is part of the key, since a follower must not
+	 * receive the outcome of a leader that handles the authentication failures differently.
+	 */
+	private String toCoalescerKey(final Map<String, String> parameters, final String resource,
+			final boolean failOnLogin) {
+		return sessionPool.toKey(parameters) + "|" + failOnLogin + "|" + resource;
+	}
+
+	/**
+	 * Return a Squash's resource using a pooled authenticated session. Concurrent identical requests share the same
+	 * HTTP exchange. With a deadline or the hedging enabled, the resource is fetched by {@link SquashHttpClient}.
+	 *
+	 * @param parameters  The node parameters.
+	 * @param resource    The requested resource URL, relative to the node URL.
+	 * @param failOnLogin When <code>true</code>, an authentication failure raises a validation error.
+	 * @return The resource content, or <code>null</code> when the resource is not available.
+	 */
+	private String fetch(final Map<String, String> parameters, final String resource, final boolean failOnLogin) {
+		return coalescer.execute(toCoalescerKey(parameters, resource, failOnLogin), () -> {
+			if (isNonBlocking()) {
+				try {
+					return fetchWithin(parameters, resource, failOnLogin,
+							body -> new String(body.readAllBytes(), StandardCharsets.UTF_8));
+				} catch (final IOException e) {
+					log.info("Unable to read the Squash TM resource {}", resource, e);
+					return null;
+				}
+			}
+			final CurlRequest request = new CurlRequest(HttpMethod.GET,
+					Strings.CS.appendIfMissing(parameters.get(PARAMETER_URL), "/") + resource, null);
+			request.setSaveResponse(true);
+			return process(parameters, request, failOnLogin, isBulk(resource))
+					? StringUtils.defaultString(request.getResponse())
+					: null;
+		});
+	}
+
+	/**
+	 * Indicate the resource is a bulk listing, whose exchange duration mostly depends on the transferred content.
+	 */
+	private static boolean isBulk(final String resource) {
+		return resource.startsWith("generic-projects") || resource.startsWith(REQUIREMENTS_API);
+	}
+
+	/**
+	 * Indicate the resources are fetched by the non-blocking transport, with a deadline, the hedging and the
+	 * compression.
+	 */
+	private boolean isNonBlocking() {
+		return deadline > 0 || httpClient.isHedging();
+	}
+
+	/**
+	 * Reader of a decompressed response body.
+	 *
+	 * @param <T> The read type.
+	 */
+	@FunctionalInterface
+	private interface BodyReader<T> {
+		T read(InputStream body) throws IOException;
+	}
+
+	/**
+	 * Return a Squash's resource within the deadline shared by the login and the fetch. The response is read while
+	 * it is received and decompressed. The listings and the administration page are idempotent and may be hedged.
+	 *
+	 * @return The read resource, or <code>null</code> when the resource is not available.
+	 * @throws IOException When the response cannot be read, or is not received within the deadline. Only the
+	 *                     interactive callers should degrade it to a missing resource, the loaders of cached data
+	 *                     must fail.
+	 */
+	private <T> T fetchWithin(final Map<String, String> parameters, final String resource, final boolean failOnLogin,
+			final BodyReader<T> reader) throws IOException {
+		final var hedged = isBulk(resource) || resource.startsWith("administration");
+		try (var permit = bulkhead.acquire(parameters, !isBulk(resource));
+				InputStream body = httpClient
+						.getStream(parameters, resource, SquashHttpClient.deadline(deadline), hedged).join()) {
+			if (body != null) {
+				return reader.read(body);
+			}
+		} catch (final CompletionException e) {
+			throw unavailable(parameters, resource, failOnLogin, e.getCause());
+		} catch (final HttpTimeoutException e) {
+			// The body has not been received within the deadline
+			throw unavailable(parameters, resource, failOnLogin, e);
+		}
+		if (failOnLogin && !httpClient.hasSession(parameters)) {
+			metrics.failure(parameters, "squash-login");
+			throw new ValidationJsonException(PARAMETER_USER, "squash-login");
+		}
+		return null;
+	}
+
+	/**
+	 * Return the failure of a resource not received within the deadline.
+	 *
+	 * @throws ValidationJsonException When the failure is raised as a connection error.
+	 */
+	private IOException unavailable(final Map<String, String> parameters, final String resource,
+			final boolean failOnLogin, final Throwable cause) {
+		log.info("Unable to fetch the Squash TM resource {}", resource, cause);
+		metrics.failure(parameters, "squash-connection");
+		if (failOnLogin) {
+			throw new ValidationJsonException(PARAMETER_URL, "squash-connection");
+		}
+		return new IOException("Squash TM resource " + resource + " is not available within the deadline", cause);
+	}
+
+	/**
+	 * Return the version of a node read from its administration page. With the non-blocking transport, the version
+	 * is extracted while the page is received.
+	 *
+	 * @return The version, or <code>null</code> when the administration page is not available.
+	 */
+	private String fetchVersion(final Map<String, String> parameters, final boolean failOnLogin) {
+		if (!isNonBlocking()) {
+			final String admin = fetch(parameters, "administration", failOnLogin);
+			return admin == null ? null : getVersion(admin);
+		}
+		return coalescer.execute(toCoalescerKey(parameters, "administration#version", failOnLogin), () -> {
+			try {
+				return fetchWithin(parameters, "administration", failOnLogin, SquashVersionExtractor::extract);
+			} catch (final IOException e) {
+				log.info("Unable to read the Squash TM administration page", e);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Return the test case statistics of the library of the subscribed project.
+	 * Statistics are cached by library.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @return The test case statistics.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	@GET
+	@Path("statistics/{subscription:\\d+}")
+	public SquashStatistics getStatistics(@PathParam("subscription") final int subscription) throws IOException {
+		return getStatistics(subscriptionResource.getParameters(subscription));
+	}
+
+	/**
+	 * Return the test case statistics of the library of a Squash TM project.
 	 *
-	 * @param processor  The CURL processor.
 	 * @param parameters The subscription parameters.
-	 * @param url        The base URL.
-	 * @param resource   The requested resource URL
-	 * @return The resource content.
+	 * @return The test case statistics.
+	 * @throws IOException When the Squash TM content cannot be fetched or parsed.
 	 */
-	protected String getResource(final CurlProcessor processor, final Map<String, String> parameters, final String url,
-			final String resource) {
-		// Get the resource using the preempted authentication
-		final CurlRequest request = new CurlRequest(HttpMethod.GET, Strings.CS.appendIfMissing(url, "/") + resource,
-				null);
-		request.setSaveResponse(true);
+	protected SquashStatistics getStatistics(final Map<String, String> parameters) throws IOException {
+		final int library = getProjectId(parameters);
+		final var resource = "test-case-browser/statistics?libraries=" + library + "&nodes=";
+		return statisticsCache.get(parameters, library, () -> MAPPER.readValue(
+				StringUtils.defaultIfEmpty(required(getResource(parameters, resource), resource), "{}"),
+				SquashStatistics.class));
+	}
 
-		// Execute the requests
-		processor.process(authenticate(parameters, url), request);
-		processor.close();
-		return request.getResponse();
+	/**
+	 * Return the test case statistics aggregated over all Squash TM subscriptions of a project. The libraries are
+	 * fetched in parallel.
+	 *
+	 * @param project The Ligoj project identifier.
+	 * @return The aggregated test case statistics.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	@GET
+	@Path("statistics/project/{project:\\d+}")
+	public SquashStatistics getProjectStatistics(@PathParam("project") final int project) throws IOException {
+		// Resolve the parameters within the current thread and transaction
+		final List<Map<String, String>> subscriptions = subscriptionRepository.findAllByProject(project).stream()
+				.filter(s -> Strings.CS.startsWith(s.getNode().getId(), KEY + ":"))
+				.map(s -> subscriptionResource.getParameters(s.getId())).toList();
+
+		// Fetch the libraries in parallel
+		final List<CompletableFuture<SquashStatistics>> futures = subscriptions.stream()
+				.map(parameters -> CompletableFuture.supplyAsync(() -> {
+					try {
+						return getStatistics(parameters);
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, httpClient.getExecutor())).toList();
+		SquashStatistics result = new SquashStatistics();
+		for (final CompletableFuture<SquashStatistics> future : futures) {
+			result = result.add(join(future));
+		}
+		return result;
+	}
+
+	/**
+	 * Export all requirements of the subscribed project as newline-delimited JSON.
+	 * The requirements are written while the pages are fetched from Squash TM, so
+	 * the whole list is never held in memory.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @return The streamed requirements, one JSON object per line.
+	 */
+	@GET
+	@Path("requirements/{subscription:\\d+}")
+	@Produces(NDJSON)
+	public Response exportRequirements(@PathParam("subscription") final int subscription) {
+		// Resolve the parameters within the current transaction
+		final Map<String, String> parameters = subscriptionResource.getParameters(subscription);
+		final int project = getProjectId(parameters);
+		final StreamingOutput output = out -> writeRequirements(parameters, project, out);
+		return Response.ok(output, NDJSON).build();
+	}
+
+	/**
+	 * Write all requirements of a Squash TM project as newline-delimited JSON, page
+	 * by page. Each page is fetched within the concurrency limit of the node, and
+	 * is read within the deadline, or the request timeout without deadline.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @param project    The Squash TM project identifier.
+	 * @param out        The target output.
+	 * @throws IOException When a page cannot be fetched, parsed or written. The output is then incomplete.
+	 */
+	protected void writeRequirements(final Map<String, String> parameters, final int project, final OutputStream out)
+			throws IOException {
+		try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+			generator.setRootValueSeparator(null);
+			var page = 0;
+			var last = false;
+			while (!last) {
+				final var resource = REQUIREMENTS_API + project + "/requirements?page=" + page + "&size="
+						+ EXPORT_PAGE_SIZE;
+				last = required(metrics.record("requirements", parameters,
+						() -> fetchWithin(parameters, resource, false, body -> copyRequirements(body, generator))),
+						resource);
+				generator.flush();
+				page++;
+			}
+		}
+	}
+
+	/**
+	 * Copy the requirements of a page, one per line.
+	 *
+	 * @return <code>true</code> when this page is the last one.
+	 */
+	private boolean copyRequirements(final InputStream page, final JsonGenerator generator) throws IOException {
+		var count = 0;
+		var number = 0;
+		var totalPages = 0;
+		try (JsonParser parser = MAPPER.getFactory().createParser(page)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return true;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String field = parser.currentName();
+				parser.nextToken();
+				if ("_embedded".equals(field) || "page".equals(field)) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						final String child = parser.currentName();
+						if (parser.nextToken() == JsonToken.START_ARRAY && "requirements".equals(child)) {
+							while (parser.nextToken() == JsonToken.START_OBJECT) {
+								generator.copyCurrentStructure(parser);
+								generator.writeRaw('\n');
+								count++;
+							}
+						} else if ("number".equals(child)) {
+							number = parser.getValueAsInt();
+						} else if ("totalPages".equals(child)) {
+							totalPages = parser.getValueAsInt();
+						} else {
+							parser.skipChildren();
+						}
+					}
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return count == 0 || number + 1 >= totalPages;
+	}
+
+	/**
+	 * Wait for a future value, unwrapping its failure.
+	 */
+	private static <T> T join(final CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof UncheckedIOException ioe) {
+				throw ioe.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IOException(e.getCause());
+		}
 	}
 
 	/**
@@ -196,36 +706,74 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 * @param subscription The subscription identifier.
 	 * @return The response redirection to go to the right project.
 	 * @throws URISyntaxException When the Squash TM base URL is malformed.
+	 * @throws IOException        When the redirect target cannot be resolved.
+	 */
+	public Response redirect(final int subscription) throws URISyntaxException, IOException {
+		return redirect(subscription, null, null);
+	}
+
+	/**
+	 * Redirect to the linked project, or to a requirement or a folder of this
+	 * project. Send a redirect code with the tree cookies used by Squash TM to
+	 * open and select the target node. The resolved target is cached by user and
+	 * subscription, so neither the database nor Squash TM are involved once
+	 * resolved.
+	 *
+	 * @param subscription The subscription identifier.
+	 * @param requirement  The optional requirement identifier to select.
+	 * @param folder       The optional folder identifier to open, and to select
+	 *                     when there is no requirement.
+	 * @return The response redirection to go to the right node.
+	 * @throws URISyntaxException When the Squash TM base URL is malformed.
+	 * @throws IOException        When the redirect target cannot be resolved.
 	 */
 	@GET
 	@Path("redirect/{subscription:\\d+}")
-	public Response redirect(@PathParam("subscription") final int subscription) throws URISyntaxException {
-		final Map<String, String> parameters = subscriptionResource.getParameters(subscription);
-		final ResponseBuilder responseBuilder = Response.status(Status.FOUND).location(
-				new URI(Strings.CS.appendIfMissing(parameters.get(PARAMETER_URL), "/") + "requirement-workspace/"));
-		responseBuilder.cookie(
-				new NewCookie.Builder("jstree_open")
-						.value("%23RequirementLibrary-" + parameters.get(PARAMETER_PROJECT))
-						.path("/")
-						.build(),
-				new NewCookie.Builder("jstree_select")
-						.value("%23RequirementLibrary-" + parameters.get(PARAMETER_PROJECT))
-						.path("/")
-						.build());
-		return responseBuilder.build();
+	public Response redirect(@PathParam("subscription") final int subscription,
+			@QueryParam("requirement") final Integer requirement, @QueryParam("folder") final Integer folder)
+			throws URISyntaxException, IOException {
+		final SquashRedirectCache.Target target = redirectCache.get(securityHelper.getLogin(), subscription, () -> {
+			final Map<String, String> parameters = subscriptionResource.getParameters(subscription);
+			return new SquashRedirectCache.Target(Strings.CS.appendIfMissing(parameters.get(PARAMETER_URL), "/"),
+					parameters.get(PARAMETER_PROJECT));
+		});
+
+		// Open the library and the folder, then select the deepest node
+		final String library = "%23RequirementLibrary-" + target.library();
+		String open = library;
+		String select = library;
+		if (folder != null) {
+			select = "%23RequirementFolder-" + folder;
+			open += "," + select;
+		}
+		if (requirement != null) {
+			select = "%23Requirement-" + requirement;
+		}
+		return Response.status(Status.FOUND).location(new URI(target.url() + "requirement-workspace/"))
+				.cookie(new NewCookie.Builder("jstree_open").value(open).path("/").build(),
+						new NewCookie.Builder("jstree_select").value(select).path("/").build())
+				.build();
 	}
 
 	@Override
 	public String getVersion(final Map<String, String> parameters) {
+		final String cached = versionCache.getVersion(parameters);
+		if (cached != null) {
+			return cached;
+		}
+
 		// Get the version from the raw HTML of the administration page
-		return getVersion(getResource(parameters, "administration"));
+		final String version = fetchVersion(parameters, false);
+		if (version == null) {
+			return "";
+		}
+		versionCache.putVersion(parameters, version);
+		return version;
 	}
 
 	private String getVersion(final String adminPage) {
-		// Get the version from the raw HTML of the administration page
-		final String page = ObjectUtils.getIfNull(adminPage, VERSION_TAG_START + VERSION_TAG_END);
-		final int versionIndex = page.indexOf(VERSION_TAG_START) + VERSION_TAG_START.length();
-		return page.substring(versionIndex, page.indexOf(VERSION_TAG_END, versionIndex));
+		// Get the version from the raw HTML of the administration page, without scanning it all
+		return SquashVersionExtractor.extract(adminPage);
 	}
 
 	/**
@@ -236,7 +784,220 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 * @throws IOException When the Squash TM content cannot be parsed.
 	 */
 	protected List<SquashProject> getProjects(final Map<String, String> parameters) throws IOException {
-		return getProjectsDataTables(parameters, null);
+		return getCatalog(parameters).getProjects();
+	}
+
+	/**
+	 * Return the project catalog of a node, served from the cache when available.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @return The project catalog.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	protected SquashProjectCatalog getCatalog(final Map<String, String> parameters) throws IOException {
+		return catalogCache.get(parameters, this::loadCatalog);
+	}
+
+	/**
+	 * Fetch the project catalog of a node from Squash TM. When the delta
+	 * synchronization is enabled, only the projects created or modified since the
+	 * previous catalog are fetched and merged, and the whole catalog is fetched
+	 * again periodically to catch the deleted projects.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @return The fetched project catalog.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	protected SquashProjectCatalog loadCatalog(final Map<String, String> parameters) throws IOException {
+		final long now = System.currentTimeMillis();
+		final SquashProjectCatalog previous = catalogCache.peek(parameters);
+		if (!deltaSync) {
+			return new SquashProjectCatalog(getProjectsDataTables(parameters, null), now, previous);
+		}
+		if (previous == null || previous.getWatermark() == 0 || now - previous.getReconciledAt() >= fullSyncInterval) {
+			return loadFullCatalog(parameters, now, previous);
+		}
+		return loadDeltaCatalog(parameters, now, previous);
+	}
+
+	/**
+	 * Fetch the whole project catalog of a node with its high-water mark.
+	 */
+	private SquashProjectCatalog loadFullCatalog(final Map<String, String> parameters, final long now,
+			final SquashProjectCatalog previous) throws IOException {
+		final List<SquashProject> projects = new ArrayList<>();
+		final long[] watermark = { 0 };
+		final SquashProjectParser.DatedConsumer consumer = (project, createdOn, lastModOn) -> {
+			watermark[0] = Math.max(watermark[0], Math.max(createdOn, lastModOn));
+			return projects.add(project);
+		};
+		if (isNonBlocking()) {
+			// Parse the listing while it is received and decompressed
+			required(metrics.record("projects", parameters,
+					() -> fetchWithin(parameters, PROJECTS_LISTING, false, body -> {
+						SquashProjectParser.parse(body, dateFormat, consumer);
+						return projects;
+					})), PROJECTS_LISTING);
+		} else {
+			final String listing = required(getProjectsListing(parameters, null), PROJECTS_LISTING);
+			metrics.record("projects.parse", parameters, () -> {
+				SquashProjectParser.parse(listing, dateFormat, consumer);
+				return projects;
+			});
+		}
+		return new SquashProjectCatalog(projects, now, watermark[0], now, previous);
+	}
+
+	/**
+	 * Fetch the projects created or modified since the previous catalog, and merge
+	 * them into this catalog. When the delta would transfer more rows than the whole
+	 * catalog, the whole catalog is fetched instead.
+	 */
+	private SquashProjectCatalog loadDeltaCatalog(final Map<String, String> parameters, final long now,
+			final SquashProjectCatalog previous) throws IOException {
+		final Delta delta = new Delta(previous.getWatermark());
+		final int limit = previous.size() + DELTA_PAGE_SIZE;
+		if (!fetchDelta(parameters, "last-mod-on", delta, limit)
+				|| !fetchDelta(parameters, "created-on", delta, limit)) {
+			// Costlier than a full listing, such as with the never modified projects sorted first
+			return loadFullCatalog(parameters, now, previous);
+		}
+
+		// Update the changed projects in place, then append the new ones
+		final int[] ids = new int[previous.size() + delta.size];
+		final String[] names = new String[ids.length];
+		for (var i = 0; i < previous.size(); i++) {
+			ids[i] = previous.getId(i);
+			names[i] = previous.getName(i);
+		}
+		var size = previous.size();
+		final boolean[] latest = delta.latest();
+		for (var i = 0; i < delta.size; i++) {
+			if (!latest[i]) {
+				// Superseded by a later row of the same project
+				continue;
+			}
+			final int position = previous.indexOf(delta.ids[i]);
+			if (position == -1) {
+				ids[size] = delta.ids[i];
+				names[size++] = delta.names[i];
+			} else {
+				names[position] = delta.names[i];
+			}
+		}
+		return new SquashProjectCatalog(Arrays.copyOf(ids, size), Arrays.asList(names).subList(0, size), now,
+				delta.watermark, previous.getReconciledAt(), previous);
+	}
+
+	/**
+	 * Fetch the projects by descending date of the given column, until a project
+	 * older than the high-water mark is reached. A missing page fails the whole
+	 * delta, so the previous catalog is kept.
+	 *
+	 * @return <code>false</code> when the rows fetched by the delta have reached
+	 *         the limit before its completion.
+	 */
+	private boolean fetchDelta(final Map<String, String> parameters, final String column, final Delta delta,
+			final int limit) throws IOException {
+		delta.created = "created-on".equals(column);
+		delta.dated = false;
+		for (var start = 0;; start += DELTA_PAGE_SIZE) {
+			final String resource = "generic-projects?sEcho=4&iDisplayStart=" + start + "&iDisplayLength="
+					+ DELTA_PAGE_SIZE + "&iSortingCols=1&iSortCol_0=0&sSortDir_0=desc&mDataProp_0=" + column;
+			final String page = required(
+					metrics.record("projects.delta", parameters, () -> getResource(parameters, resource)), resource);
+			delta.rows = 0;
+			delta.older = false;
+			SquashProjectParser.parse(page, dateFormat, delta::accept);
+			delta.fetched += delta.rows;
+			if (delta.older || delta.rows < DELTA_PAGE_SIZE) {
+				return true;
+			}
+			if (delta.fetched >= limit) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Projects created or modified since a high-water mark.
+	 */
+	private static final class Delta {
+		private final long since;
+		private int[] ids = new int[16];
+		private String[] names = new String[16];
+		private int size;
+		private long watermark;
+		private int rows;
+		private int fetched;
+		private boolean older;
+
+		/**
+		 * <code>true</code> once a dated project has been collected by the current pass.
+		 */
+		private boolean dated;
+
+		/**
+		 * <code>true</code> when the page is sorted by creation date, <code>false</code> for the modification date.
+		 */
+		private boolean created;
+
+		private Delta(final long since) {
+			this.since = since;
+			this.watermark = since;
+		}
+
+		/**
+		 * Collect a project of a page sorted by descending date.
+		 *
+		 * @return <code>false</code> when this project and the next ones are older
+		 *         than the high-water mark.
+		 */
+		private boolean accept(final SquashProject project, final long createdOn, final long lastModOn) {
+			rows++;
+			final long date = created ? createdOn : lastModOn;
+			if (date == 0 && !created) {
+				// Never modified project, left to the creation pass. Sorted after the dated ones, the next are too.
+				older = dated;
+				return !dated;
+			}
+			if (date != 0 && date < since) {
+				older = true;
+				return false;
+			}
+			if (project.getId() != null) {
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					names = Arrays.copyOf(names, size * 2);
+				}
+				ids[size] = project.getId();
+				names[size++] = project.getName();
+			}
+			watermark = Math.max(watermark, Math.max(createdOn, lastModOn));
+			dated = true;
+			return true;
+		}
+
+		/**
+		 * Flag the last collected row of each project.
+		 *
+		 * @return The flags, by collection order.
+		 */
+		private boolean[] latest() {
+			// Sort by identifier, then by collection order
+			final long[] keys = new long[size];
+			for (var i = 0; i < size; i++) {
+				keys[i] = ((long) ids[i] << 32) | i;
+			}
+			Arrays.sort(keys);
+			final boolean[] result = new boolean[size];
+			for (var k = 0; k < size; k++) {
+				if (k + 1 == size || keys[k + 1] >> 32 != keys[k] >> 32) {
+					result[(int) keys[k]] = true;
+				}
+			}
+			return result;
+		}
 	}
 
 	/**
@@ -245,16 +1006,77 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 * @param parameters The subscription parameters.
 	 * @param criteria   The criteria (plain text) for the lookup.
 	 * @return The resource content.
-	 * @throws IOException When the Squash TM content cannot be parsed.
+	 * @throws IOException When the Squash TM listing is not available or cannot be parsed.
 	 */
 	protected List<SquashProject> getProjectsDataTables(final Map<String, String> parameters, final String criteria)
 			throws IOException {
-		return new ObjectMapper().readValue(
-				StringUtils.defaultIfEmpty(getResource(parameters,
-								"generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"
-										+ (criteria == null ? "" : "&sSearch=" + criteria)),
-						"{\"aaData\":[]}"),
-				VALUE_TYPE_REF).getAaData();
+		if (isNonBlocking()) {
+			// Parse the listing while it is received and decompressed
+			return required(metrics.record("projects", parameters,
+					() -> fetchWithin(parameters, toProjectsListing(criteria), false, SquashProjectParser::parse)),
+					PROJECTS_LISTING);
+		}
+		final String listing = required(getProjectsListing(parameters, criteria), PROJECTS_LISTING);
+		return metrics.record("projects.parse", parameters, () -> SquashProjectParser.parse(listing));
+	}
+
+	/**
+	 * Return the given fetched content, failing when Squash TM has not provided it. Loaders of cached data use it so
+	 * a failed fetch keeps the previous data instead of caching an empty one.
+	 *
+	 * @param content  The fetched content. May be <code>null</code>.
+	 * @param resource The fetched resource.
+	 * @return The not <code>null</code> content.
+	 * @throws IOException When the content is not available.
+	 */
+	private static <T> T required(final T content, final String resource) throws IOException {
+		if (content == null) {
+			throw new IOException("Squash TM resource " + resource + " is not available");
+		}
+		return content;
+	}
+
+	/**
+	 * Return the raw JSON listing of all Squash TM projects without limit and an optional criteria.
+	 */
+	private String getProjectsListing(final Map<String, String> parameters, final String criteria) {
+		return metrics.record("projects", parameters, () -> getResource(parameters, toProjectsListing(criteria)));
+	}
+
+	/**
+	 * Return the resource of the listing of all Squash TM projects without limit and an optional criteria.
+	 */
+	private String toProjectsListing(final String criteria) {
+		return PROJECTS_LISTING + (criteria == null ? "" : "&sSearch=" + criteria);
+	}
+
+	/**
+	 * Return asynchronously a Squash's resource through the non-blocking transport.
+	 * The completed value is <code>null</code> when the resource is not found.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @param resource   The requested resource URL
+	 * @return The future resource content.
+	 */
+	public CompletableFuture<String> getResourceAsync(final Map<String, String> parameters, final String resource) {
+		return httpClient.getString(parameters, resource);
+	}
+
+	/**
+	 * Return asynchronously all Squash TM projects without limit, through the
+	 * non-blocking transport. The listing is parsed while it is received.
+	 *
+	 * @param parameters The subscription parameters.
+	 * @return The future projects.
+	 */
+	public CompletableFuture<List<SquashProject>> getProjectsAsync(final Map<String, String> parameters) {
+		return httpClient.getStream(parameters, PROJECTS_LISTING).thenApplyAsync(listing -> {
+			try {
+				return SquashProjectParser.parse(listing);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, httpClient.getExecutor());
 	}
 
 	/**
@@ -266,7 +1088,17 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 * @throws IOException When the Squash TM content cannot be parsed.
 	 */
 	protected SquashProject getProject(final Map<String, String> parameters, final int id) throws IOException {
-		return getProjects(parameters).stream().filter(project -> project.getId().equals(id)).findFirst().orElse(null);
+		if (catalogCache.isEnabled()) {
+			final SquashProject project = getCatalog(parameters).get(id);
+			if (project == null) {
+				// The project may have been created since the catalog has been fetched
+				return catalogCache.reload(parameters, this::loadCatalog).get(id);
+			}
+			return project;
+		}
+
+		// No cache, stop the parsing at the first match
+		return SquashProjectParser.find(getProjectsListing(parameters, null), id);
 	}
 
 	/**
@@ -275,6 +1107,8 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	 *
 	 * @param node     the node to be tested with given parameters.
 	 * @param criteria the search criteria.
+	 * @param offset   the index of the first project to return.
+	 * @param limit    the maximal amount of projects to return.
 	 * @return project names matching the criteria.
 	 * @throws IOException When the Squash TM content cannot be parsed.
 	 */
@@ -282,13 +1116,115 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 	@Path("{node}/{criteria}")
 	@Consumes(MediaType.APPLICATION_JSON)
 	public List<SquashProject> findAllByName(@PathParam("node") final String node,
-			@PathParam("criteria") final String criteria) throws IOException {
+			@PathParam("criteria") final String criteria,
+			@QueryParam("offset") @DefaultValue("0") final int offset,
+			@QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) final int limit) throws IOException {
+		return findPageByName(node, criteria, offset, limit).getAaData();
+	}
+
+	/**
+	 * Search the Squash TM the projects matching to the given criteria, with the total amount of matches. Name only
+	 * is considered. When the catalog cache is enabled, the search is answered from the local index of the node.
+	 *
+	 * @param node     the node to be tested with given parameters.
+	 * @param criteria the search criteria.
+	 * @param offset   the index of the first project to return.
+	 * @param limit    the maximal amount of projects to return.
+	 * @return project names matching the criteria and the total count.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	@GET
+	@Path("{node}/{criteria}/page")
+	@Consumes(MediaType.APPLICATION_JSON)
+	public TableItem<SquashProject> findPageByName(@PathParam("node") final String node,
+			@PathParam("criteria") final String criteria,
+			@QueryParam("offset") @DefaultValue("0") final int offset,
+			@QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) final int limit) throws IOException {
 
 		// Prepare the context, an ordered set of projects
-		final Map<String, String> parameters = pvResource.getNodeParameters(node);
+		return search(pvResource.getNodeParameters(node), criteria, offset, limit);
+	}
 
-		// Get the projects and parse them
-		return getProjectsDataTables(parameters, criteria);
+	/**
+	 * Search the projects of a node matching to the given criteria.
+	 */
+	private TableItem<SquashProject> search(final Map<String, String> parameters, final String criteria,
+			final int offset, final int limit) throws IOException {
+		if (catalogCache.isEnabled()) {
+			// Search within the local index of the cached catalog
+			return getCatalog(parameters).getIndex().search(criteria, offset, Math.clamp(limit, 1, MAX_PAGE_SIZE));
+		}
+
+		// Get the requested page only
+		return SquashProjectParser.parsePage(getResource(parameters,
+				"generic-projects?sEcho=4&iDisplayStart=" + Math.max(0, offset) + "&iDisplayLength="
+						+ Math.clamp(limit, 1, MAX_PAGE_SIZE) + "&sSearch="
+						+ URLEncoder.encode(criteria, StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Search the projects matching to the given criteria across the Squash TM nodes visible by the current user. The
+	 * nodes are searched concurrently, and the nodes not answering before the deadline are reported as unavailable.
+	 * Their search is not interrupted: it may lead a fetch shared with other callers, and completes in background,
+	 * so the catalog of a slow node is still cached. The matches are ranked as for a single node: names starting with the criteria
+	 * first.
+	 *
+	 * @param criteria the search criteria.
+	 * @param limit    the maximal amount of projects to return.
+	 * @param timeout  the deadline of the whole search, in milliseconds. When zero or negative, the default search
+	 *                 timeout is used.
+	 * @return Ranked matching projects with their node, and the unavailable nodes.
+	 */
+	@GET
+	@Path("search/{criteria}")
+	public SquashSearchResult findAllNodesByName(@PathParam("criteria") final String criteria,
+			@QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) final int limit,
+			@QueryParam("timeout") @DefaultValue("0") final long timeout) {
+		// Resolve the nodes and their parameters within the current transaction
+		final int max = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+		final String user = securityHelper.getLogin();
+		final Map<Node, Future<TableItem<SquashProject>>> searches = new LinkedHashMap<>();
+		nodeRepository.findAllVisible(user, "", KEY, null, -1, Pageable.unpaged()).forEach(node -> {
+			final Map<String, String> parameters = pvResource.getNodeParameters(node.getId());
+			searches.put(node, httpClient.getExecutor().submit(() -> search(parameters, criteria, 0, max)));
+		});
+
+		// Wait for all nodes until the deadline
+		final long deadline = System.nanoTime() + Duration.ofMillis(timeout > 0 ? timeout : searchTimeout).toNanos();
+		final SquashSearchResult result = new SquashSearchResult();
+		final String query = SquashProjectIndex.fold(criteria);
+		searches.forEach((node, search) -> {
+			try {
+				search.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+						.getAaData().forEach(p -> result.getProjects().add(toNodeProject(node, p)));
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				result.getUnavailable().add(node.getId());
+			} catch (final ExecutionException | TimeoutException e) {
+				// Stop waiting, the exchange still in progress completes in background
+				log.info("Unable to search the Squash TM projects of {}", node.getId(), e.getCause());
+				result.getUnavailable().add(node.getId());
+			}
+		});
+
+		// Merge the results
+		result.getProjects().sort(Comparator
+				.<SquashNodeProject>comparingInt(p -> SquashProjectIndex.fold(p.getName()).startsWith(query) ? 0 : 1)
+				.thenComparing(p -> SquashProjectIndex.fold(p.getName())).thenComparing(SquashNodeProject::getNode)
+				.thenComparing(SquashNodeProject::getId));
+		if (result.getProjects().size() > max) {
+			result.setProjects(new ArrayList<>(result.getProjects().subList(0, max)));
+		}
+		return result;
+	}
+
+	private SquashNodeProject toNodeProject(final Node node, final SquashProject project) {
+		final SquashNodeProject result = new SquashNodeProject();
+		result.setProject(project.getId());
+		result.setName(project.getName());
+		result.setNode(node.getId());
+		result.setNodeName(node.getName());
+		return result;
 	}
 
 	@Override
@@ -298,16 +1234,48 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 
 	@Override
 	public String getLastVersion() throws IOException {
-		try (CurlProcessor curl = new CurlProcessor()) {
-			final String tagsAsJson = curl.get(publicServer
-							+ "/2.0/repositories/nx/squashtest-tm/refs/tags?pagelen=1&q=name~%22squash-tm-%22&sort=-target.date",
-					"Content-Type:application/json");
-			return Strings.CS.removeStart(
-					new ObjectMapper()
-							.readValue(StringUtils.defaultIfEmpty(tagsAsJson, "{\"values\":[]}"), BitBucketTags.class)
-							.getValues().stream().findFirst().map(BitBucketTag::getName).orElse("squash-tm-"),
-					"squash-tm-");
+		final SquashVersionCache.Entry cached = versionCache.getLastVersion();
+		if (!versionCache.isExpired(cached)) {
+			return cached.version();
+		}
+
+		// Revalidate the cached version with its entity tag
+		final HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(publicServer
+						+ "/2.0/repositories/nx/squashtest-tm/refs/tags?pagelen=1&q=name~%22squash-tm-%22&sort=-target.date"))
+				.header("Accept", "application/json").timeout(PUBLIC_SERVER_TIMEOUT).GET();
+		if (cached != null && cached.etag() != null) {
+			request.header("If-None-Match", cached.etag());
 		}
+		final HttpResponse<String> response;
+		final Timer.Sample sample = Timer.start();
+		try {
+			response = PUBLIC_CLIENT.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (final IOException e) {
+			// Unreachable server, serve the expired version when available
+			log.info("Unable to get the last Squash TM version", e);
+			return cached == null ? "" : cached.version();
+		} finally {
+			sample.stop(metrics.timer("last-version", publicServer));
+		}
+		final long now = System.currentTimeMillis();
+		if (response.statusCode() == Status.NOT_MODIFIED.getStatusCode() && cached != null) {
+			versionCache.putLastVersion(cached.revalidate(now));
+			return cached.version();
+		}
+		if (response.statusCode() != Status.OK.getStatusCode()) {
+			// Unavailable server, serve the expired version when available
+			log.info("Unable to get the last Squash TM version, status {}", response.statusCode());
+			return cached == null ? "" : cached.version();
+		}
+		final String version = Strings.CS.removeStart(MAPPER
+				.readValue(StringUtils.defaultIfEmpty(response.body(), "{\"values\":[]}"), BitBucketTags.class)
+				.getValues().stream().findFirst().map(BitBucketTag::getName).orElse("squash-tm-"), "squash-tm-");
+		versionCache.putLastVersion(
+				new SquashVersionCache.Entry(version, response.headers().firstValue("ETag").orElse(null), now));
+		return version;
 	}
 
 	@Override
@@ -317,11 +1285,88 @@ public class SquashPluginResource extends AbstractToolPluginResource implements
 		return nodeStatusWithData;
 	}
 
+	/**
+	 * Check the status of several subscriptions. Subscriptions are grouped by node and credentials, and the project
+	 * catalog is fetched once per group. A subscription whose project is not found, or whose node cannot be reached,
+	 * is reported as down.
+	 *
+	 * @param subscriptions The subscription identifiers.
+	 * @return The status of each subscription.
+	 */
+	public Map<Integer, SubscriptionStatusWithData> checkSubscriptionStatus(final Collection<Integer> subscriptions) {
+		// Group the subscriptions by node and credentials
+		final Map<String, Map<Integer, Map<String, String>>> groups = new LinkedHashMap<>();
+		subscriptions.forEach(subscription -> {
+			final Map<String, String> parameters = subscriptionResource.getParametersNoCheck(subscription);
+			groups.computeIfAbsent(sessionPool.toKey(parameters), k -> new LinkedHashMap<>()).put(subscription,
+					parameters);
+		});
+
+		// Fetch the catalog once per group
+		final Map<Integer, SubscriptionStatusWithData> result = new LinkedHashMap<>();
+		groups.values().forEach(group -> {
+			final SquashProjectCatalog catalog = getCatalogQuiet(group.values().iterator().next());
+			group.forEach((subscription, parameters) -> {
+				final SquashProject project = catalog == null ? null : catalog.get(getProjectId(parameters));
+				final SubscriptionStatusWithData status = new SubscriptionStatusWithData(project != null);
+				if (project != null) {
+					status.put("project", project);
+				}
+				result.put(subscription, status);
+			});
+		});
+		return result;
+	}
+
+	/**
+	 * Return the project catalog of a node, or <code>null</code> when it cannot be fetched.
+	 */
+	private SquashProjectCatalog getCatalogQuiet(final Map<String, String> parameters) {
+		try {
+			return getCatalog(parameters);
+		} catch (final IOException | RuntimeException e) {
+			log.info("Unable to get the Squash TM catalog of {}", parameters.get(PARAMETER_URL), e);
+			return null;
+		}
+	}
+
 	@Override
 	public boolean checkStatus(final Map<String, String> parameters) {
+		return checkStatus(parameters, false);
+	}
+
+	/**
+	 * Check the status of a node. Unless a live check is requested, the result of
+	 * the last background probe of this node is returned when recent enough.
+	 *
+	 * @param parameters The node parameters.
+	 * @param live       When <code>true</code>, the node is checked now.
+	 * @return <code>true</code> when the node is up.
+	 */
+	public boolean checkStatus(final Map<String, String> parameters, final boolean live) {
 		// Status is UP <=> Administration access is UP
-		validateAdminAccess(parameters);
-		return true;
+		return prober.check(parameters, this::probe, live);
+	}
+
+	/**
+	 * Probe a node. The administration access is fully checked on demand and every
+	 * {@link #fullProbeEvery} background probes. The other probes only check the
+	 * credentials and the liveness with a small authenticated request within a
+	 * pooled session.
+	 *
+	 * @param parameters The node parameters.
+	 * @param live       When <code>true</code>, the administration access is
+	 *                   checked.
+	 * @param count      The amount of previous probes of this node, counted by the
+	 *                   prober.
+	 */
+	protected void probe(final Map<String, String> parameters, final boolean live, final int count) {
+		if (live || fullProbeEvery <= 1 || count % fullProbeEvery == 0) {
+			validateAdminAccess(parameters);
+		} else if (metrics.record("probe", parameters, () -> fetch(parameters, LIGHT_PROBE, true)) == null) {
+			metrics.failure(parameters, "squash-connection");
+			throw new ValidationJsonException(PARAMETER_URL, "squash-connection");
+		}
 	}
 
 }
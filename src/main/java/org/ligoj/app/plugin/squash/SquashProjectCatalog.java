@@ -0,0 +1,266 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import lombok.Getter;
+
+/**
+ * Immutable and compact snapshot of the projects of a Squash TM node, shared read-only across requests. Identifiers
+ * are stored as primitive integers with an open addressing table from identifier to position, and names are packed in
+ * a single string. {@link SquashProject} instances are only built on demand, at the REST boundary.
+ */
+public class SquashProjectCatalog {
+
+	/**
+	 * Fetch time of this catalog, in milliseconds.
+	 */
+	@Getter
+	private final long fetchedAt;
+
+	/**
+	 * Latest creation or modification time of the projects, as read from Squash TM, in milliseconds.
+	 * <code>0</code> when unknown.
+	 */
+	@Getter
+	private final long watermark;
+
+	/**
+	 * Time of the last full fetch of the projects, in milliseconds.
+	 */
+	@Getter
+	private final long reconciledAt;
+
+	/**
+	 * Project identifiers by position, in the Squash TM order.
+	 */
+	private final int[] ids;
+
+	/**
+	 * All project names, concatenated.
+	 */
+	private final String names;
+
+	/**
+	 * Start offset of each name within {@link #names}, plus a final end offset.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Open addressing table: position plus one of the project of each slot, <code>0</code> for an empty slot.
+	 */
+	private final int[] table;
+
+	/**
+	 * Name search index of the projects, built on first use.
+	 */
+	private volatile SquashProjectIndex index;
+
+	/**
+	 * Index of the previous catalog of the same node, reused by the first build of {@link #index}.
+	 */
+	private SquashProjectIndex previousIndex;
+
+	/**
+	 * Build a catalog from the given projects.
+	 *
+	 * @param projects  The projects fetched from Squash TM.
+	 * @param fetchedAt Fetch time of these projects, in milliseconds.
+	 */
+	public SquashProjectCatalog(final List<SquashProject> projects, final long fetchedAt) {
+		this(projects, fetchedAt, null);
+	}
+
+	/**
+	 * Build a catalog from the given projects, refreshing the search index of the previous catalog of the same node.
+	 * Projects without identifier are ignored.
+	 *
+	 * @param projects  The projects fetched from Squash TM.
+	 * @param fetchedAt Fetch time of these projects, in milliseconds.
+	 * @param previous  The previous catalog of the same node. May be <code>null</code>.
+	 */
+	public SquashProjectCatalog(final List<SquashProject> projects, final long fetchedAt,
+			final SquashProjectCatalog previous) {
+		this(projects, fetchedAt, 0, fetchedAt, previous);
+	}
+
+	/**
+	 * Build a catalog from the given projects with their synchronization state, refreshing the search index of the
+	 * previous catalog of the same node. Projects without identifier are ignored.
+	 *
+	 * @param projects     The projects fetched from Squash TM.
+	 * @param fetchedAt    Fetch time of these projects, in milliseconds.
+	 * @param watermark    Latest creation or modification time of these projects, in milliseconds.
+	 * @param reconciledAt Time of the last full fetch of the projects, in milliseconds.
+	 * @param previous     The previous catalog of the same node. May be <code>null</code>.
+	 */
+	public SquashProjectCatalog(final List<SquashProject> projects, final long fetchedAt, final long watermark,
+			final long reconciledAt, final SquashProjectCatalog previous) {
+		this(projects.stream().filter(p -> p.getId() != null).mapToInt(SquashProject::getId).toArray(),
+				projects.stream().filter(p -> p.getId() != null).map(SquashProject::getName).toList(), fetchedAt,
+				watermark, reconciledAt, previous);
+	}
+
+	/**
+	 * Build a catalog from the given identifiers and names.
+	 *
+	 * @param ids       The project identifiers.
+	 * @param names     The project names, in the same order than the identifiers.
+	 * @param fetchedAt Fetch time of these projects, in milliseconds.
+	 * @param previous  The previous catalog of the same node. May be <code>null</code>.
+	 */
+	public SquashProjectCatalog(final int[] ids, final List<String> names, final long fetchedAt,
+			final SquashProjectCatalog previous) {
+		this(ids, names, fetchedAt, 0, fetchedAt, previous);
+	}
+
+	/**
+	 * Build a catalog from the given identifiers and names with their synchronization state.
+	 *
+	 * @param ids          The project identifiers.
+	 * @param names        The project names, in the same order than the identifiers.
+	 * @param fetchedAt    Fetch time of these projects, in milliseconds.
+	 * @param watermark    Latest creation or modification time of these projects, in milliseconds.
+	 * @param reconciledAt Time of the last full fetch of the projects, in milliseconds.
+	 * @param previous     The previous catalog of the same node. May be <code>null</code>.
+	 */
+	public SquashProjectCatalog(final int[] ids, final List<String> names, final long fetchedAt,
+			final long watermark, final long reconciledAt, final SquashProjectCatalog previous) {
+		this.fetchedAt = fetchedAt;
+		this.watermark = watermark;
+		this.reconciledAt = reconciledAt;
+		this.ids = ids.clone();
+		this.offsets = new int[ids.length + 1];
+		final var packed = new StringBuilder();
+		for (var i = 0; i < ids.length; i++) {
+			offsets[i] = packed.length();
+			packed.append(Objects.toString(names.get(i), ""));
+		}
+		offsets[ids.length] = packed.length();
+		this.names = packed.toString();
+
+		// Power of two table, at least twice the size
+		this.table = new int[Integer.highestOneBit(Math.max(2, ids.length * 2) - 1) << 1];
+		for (var i = 0; i < ids.length; i++) {
+			if (indexOf(ids[i]) == -1) {
+				table[findSlot(ids[i])] = i + 1;
+			}
+		}
+		this.previousIndex = previous == null ? null : previous.index;
+	}
+
+	/**
+	 * Return the name search index of the projects. The index is built on first use, from the index of the previous
+	 * catalog when it was built.
+	 *
+	 * @return The name search index.
+	 */
+	public SquashProjectIndex getIndex() {
+		var result = index;
+		if (result == null) {
+			synchronized (this) {
+				result = index;
+				if (result == null) {
+					result = SquashProjectIndex.build(previousIndex, this);
+					index = result;
+					previousIndex = null;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int hash(final int id, final int mask) {
+		final var h = id * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Return the slot of the given identifier: either its own slot, either the empty slot where it would be stored.
+	 */
+	private int findSlot(final int id) {
+		final var mask = table.length - 1;
+		var slot = hash(id, mask);
+		while (table[slot] != 0 && ids[table[slot] - 1] != id) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Return the amount of projects.
+	 *
+	 * @return The amount of projects.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Return the position of a project from its identifier. When the identifier is duplicated, the first position is
+	 * returned.
+	 *
+	 * @param id The Squash TM project identifier.
+	 * @return The position, or <code>-1</code> when not found.
+	 */
+	public int indexOf(final int id) {
+		return table[findSlot(id)] - 1;
+	}
+
+	/**
+	 * Return the identifier of the project at the given position.
+	 *
+	 * @param position The project position.
+	 * @return The project identifier.
+	 */
+	public int getId(final int position) {
+		return ids[position];
+	}
+
+	/**
+	 * Return the name of the project at the given position.
+	 *
+	 * @param position The project position.
+	 * @return The project name.
+	 */
+	public String getName(final int position) {
+		return names.substring(offsets[position], offsets[position + 1]);
+	}
+
+	/**
+	 * Build the project at the given position.
+	 *
+	 * @param position The project position.
+	 * @return A new project instance.
+	 */
+	public SquashProject toProject(final int position) {
+		final var project = new SquashProject();
+		project.setProject(ids[position]);
+		project.setName(getName(position));
+		return project;
+	}
+
+	/**
+	 * Return the project from its identifier.
+	 *
+	 * @param id The Squash TM project identifier.
+	 * @return A new project instance or <code>null</code> when not found.
+	 */
+	public SquashProject get(final int id) {
+		final var position = indexOf(id);
+		return position == -1 ? null : toProject(position);
+	}
+
+	/**
+	 * Build all projects, in the Squash TM order.
+	 *
+	 * @return New project instances.
+	 */
+	public List<SquashProject> getProjects() {
+		return IntStream.range(0, ids.length).mapToObj(this::toProject).toList();
+	}
+}
@@ -0,0 +1,382 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Immutable search index over the names of the projects of a catalog. Names are case-folded and indexed by trigrams
+ * for "contains" queries, and by word prefixes of one and two characters for shorter queries. As for the catalog,
+ * the folded names are packed in a single buffer, and the postings are stored as primitive arrays: sorted encoded
+ * keys, and the sorted project identifiers of each key in a single buffer. An index is built from the previous one of
+ * the same node: only the postings of the added, renamed or removed projects are rebuilt, the other ones are copied
+ * as is.
+ */
+public final class SquashProjectIndex {
+
+	/**
+	 * Empty index.
+	 */
+	public static final SquashProjectIndex EMPTY = new SquashProjectIndex(null, new char[0], new int[1], new long[0],
+			new int[1], new int[0]);
+
+	/**
+	 * Key type of the one character word prefixes. Trigram keys have no type bit.
+	 */
+	private static final long PREFIX1 = 1L << 48;
+
+	/**
+	 * Key type of the two characters word prefixes.
+	 */
+	private static final long PREFIX2 = 2L << 48;
+
+	private static final int[] NO_IDS = new int[0];
+
+	/**
+	 * Indexed catalog. <code>null</code> for the empty index.
+	 */
+	private final SquashProjectCatalog catalog;
+
+	/**
+	 * All case-folded names, concatenated in the catalog order.
+	 */
+	private final char[] folded;
+
+	/**
+	 * Start offset of each folded name within {@link #folded}, plus a final end offset.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * Sorted and distinct encoded trigrams and word prefixes.
+	 */
+	private final long[] keys;
+
+	/**
+	 * Start offset of the postings of each key within {@link #postings}, plus a final end offset.
+	 */
+	private final int[] starts;
+
+	/**
+	 * Sorted project identifiers of each key, concatenated in the key order.
+	 */
+	private final int[] postings;
+
+	private SquashProjectIndex(final SquashProjectCatalog catalog, final char[] folded, final int[] offsets,
+			final long[] keys, final int[] starts, final int[] postings) {
+		this.catalog = catalog;
+		this.folded = folded;
+		this.offsets = offsets;
+		this.keys = keys;
+		this.starts = starts;
+		this.postings = postings;
+	}
+
+	/**
+	 * Case-fold the given text.
+	 *
+	 * @param text The text to fold.
+	 * @return The folded text.
+	 */
+	static String fold(final String text) {
+		return StringUtils.trimToEmpty(text).toLowerCase(Locale.ROOT);
+	}
+
+	private static long trigram(final String name, final int i) {
+		return ((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2);
+	}
+
+	private static long prefix(final String name, final int i, final int length) {
+		return length == 1 ? PREFIX1 | name.charAt(i) : PREFIX2 | ((long) name.charAt(i) << 16) | name.charAt(i + 1);
+	}
+
+	/**
+	 * Visit the encoded posting keys of a folded name.
+	 */
+	private static void keys(final String name, final LongConsumer consumer) {
+		for (var i = 0; i + 3 <= name.length(); i++) {
+			consumer.accept(trigram(name, i));
+		}
+		for (var i = 0; i < name.length(); i++) {
+			if (Character.isLetterOrDigit(name.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))) {
+				// Word start
+				consumer.accept(prefix(name, i, 1));
+				if (i + 1 < name.length()) {
+					consumer.accept(prefix(name, i, 2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the amount of indexed names.
+	 */
+	private int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Return the folded name at the given position.
+	 */
+	private String getFoldedAt(final int position) {
+		return new String(folded, offsets[position], offsets[position + 1] - offsets[position]);
+	}
+
+	/**
+	 * Return the folded name of a project from its identifier.
+	 *
+	 * @return The folded name, or <code>null</code> when this index does not contain this project.
+	 */
+	private String getFolded(final int id) {
+		final var position = catalog == null ? -1 : catalog.indexOf(id);
+		return position == -1 ? null : getFoldedAt(position);
+	}
+
+	/**
+	 * Return the sorted project identifiers of a key.
+	 */
+	private int[] getPostings(final long key) {
+		final var k = Arrays.binarySearch(keys, key);
+		return k < 0 ? NO_IDS : Arrays.copyOfRange(postings, starts[k], starts[k + 1]);
+	}
+
+	/**
+	 * Build the index of a catalog, reusing the postings of the previous index of the same node.
+	 *
+	 * @param previous The previous index. May be <code>null</code>.
+	 * @param catalog  The catalog to index.
+	 * @return The new index.
+	 */
+	static SquashProjectIndex build(final SquashProjectIndex previous, final SquashProjectCatalog catalog) {
+		final var base = previous == null ? EMPTY : previous;
+		final var buffer = new StringBuilder();
+		final var newOffsets = new int[catalog.size() + 1];
+		final var added = new HashMap<Long, IntBuffer>();
+		final var removed = new HashMap<Long, IntBuffer>();
+		for (var i = 0; i < catalog.size(); i++) {
+			final var id = catalog.getId(i);
+			final var name = fold(catalog.getName(i));
+			newOffsets[i] = buffer.length();
+			buffer.append(name);
+			if (catalog.indexOf(id) != i) {
+				// Duplicate identifier, only the first one is indexed
+				continue;
+			}
+			final var oldName = base.getFolded(id);
+			if (!name.equals(oldName)) {
+				// New or renamed project
+				if (oldName != null) {
+					keys(oldName, k -> removed.computeIfAbsent(k, x -> new IntBuffer()).add(id));
+				}
+				keys(name, k -> added.computeIfAbsent(k, x -> new IntBuffer()).add(id));
+			}
+		}
+		newOffsets[catalog.size()] = buffer.length();
+		final var newFolded = new char[buffer.length()];
+		buffer.getChars(0, buffer.length(), newFolded, 0);
+		for (var i = 0; i < base.size(); i++) {
+			final var id = base.catalog.getId(i);
+			if (base.catalog.indexOf(id) == i && catalog.indexOf(id) == -1) {
+				// Deleted project
+				keys(base.getFoldedAt(i), k -> removed.computeIfAbsent(k, x -> new IntBuffer()).add(id));
+			}
+		}
+		return base.merge(catalog, newFolded, newOffsets, added, removed);
+	}
+
+	/**
+	 * Build a new index from the postings of this index, with the given changes. The keys of both sides are merged
+	 * in order, and only the changed keys are rebuilt.
+	 */
+	private SquashProjectIndex merge(final SquashProjectCatalog catalog, final char[] newFolded,
+			final int[] newOffsets, final Map<Long, IntBuffer> added, final Map<Long, IntBuffer> removed) {
+		final var newKeys = added.keySet().stream().mapToLong(Long::longValue)
+				.filter(k -> Arrays.binarySearch(keys, k) < 0).sorted().toArray();
+		final var mergedKeys = new long[keys.length + newKeys.length];
+		final var mergedStarts = new int[mergedKeys.length + 1];
+		final var mergedPostings = new int[postings.length
+				+ added.values().stream().mapToInt(ids -> ids.size).sum()];
+		var count = 0;
+		var end = 0;
+		for (int i = 0, j = 0; i < keys.length || j < newKeys.length;) {
+			final long key;
+			var from = 0;
+			var to = 0;
+			if (j == newKeys.length || i < keys.length && keys[i] < newKeys[j]) {
+				key = keys[i];
+				from = starts[i];
+				to = starts[i + 1];
+				i++;
+			} else {
+				key = newKeys[j++];
+			}
+			final var start = end;
+			final var add = added.get(key);
+			final var remove = removed.get(key);
+			if (add == null && remove == null) {
+				// Unchanged key
+				System.arraycopy(postings, from, mergedPostings, end, to - from);
+				end += to - from;
+			} else {
+				final var adds = add == null ? NO_IDS : add.toSortedArray();
+				final var removes = remove == null ? NO_IDS : remove.toSortedArray();
+				for (int p = from, a = 0; p < to || a < adds.length;) {
+					final int id;
+					if (a == adds.length || p < to && postings[p] <= adds[a]) {
+						id = postings[p++];
+						if (Arrays.binarySearch(removes, id) >= 0) {
+							continue;
+						}
+					} else {
+						id = adds[a++];
+					}
+					if (end == start || mergedPostings[end - 1] != id) {
+						mergedPostings[end++] = id;
+					}
+				}
+			}
+			if (end > start) {
+				mergedKeys[count] = key;
+				mergedStarts[count++] = start;
+			}
+		}
+		mergedStarts[count] = end;
+		return new SquashProjectIndex(catalog, newFolded, newOffsets, Arrays.copyOf(mergedKeys, count),
+				Arrays.copyOf(mergedStarts, count + 1), Arrays.copyOf(mergedPostings, end));
+	}
+
+	/**
+	 * Indicate the folded name at the given position starts with the query.
+	 */
+	private boolean startsWith(final int position, final String query) {
+		final var start = offsets[position];
+		if (offsets[position + 1] - start < query.length()) {
+			return false;
+		}
+		for (var i = 0; i < query.length(); i++) {
+			if (folded[start + i] != query.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Indicate the folded name at the given position contains the query.
+	 */
+	private boolean contains(final int position, final String query) {
+		final var end = offsets[position + 1] - query.length();
+		for (var start = offsets[position]; start <= end; start++) {
+			var i = 0;
+			while (i < query.length() && folded[start + i] == query.charAt(i)) {
+				i++;
+			}
+			if (i == query.length()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compare the folded names at the given positions.
+	 */
+	private int compare(final int left, final int right) {
+		return Arrays.compare(folded, offsets[left], offsets[left + 1], folded, offsets[right], offsets[right + 1]);
+	}
+
+	/**
+	 * Return the projects whose name contains the given criteria, ignoring the case. Criteria shorter than three
+	 * characters match the start of the words of the name. Names starting with the criteria are ranked first.
+	 *
+	 * @param criteria The search criteria.
+	 * @param offset   The index of the first project to return.
+	 * @param limit    The maximal amount of projects to return.
+	 * @return The requested page of matching projects with the totals.
+	 */
+	public TableItem<SquashProject> search(final String criteria, final int offset, final int limit) {
+		final var query = fold(criteria);
+		final var matches = new ArrayList<Integer>();
+		if (query.length() < 3) {
+			if (!query.isEmpty()) {
+				for (final var id : getPostings(prefix(query, 0, query.length()))) {
+					matches.add(catalog.indexOf(id));
+				}
+			}
+		} else {
+			// Intersect the postings of all trigrams, then check the candidates
+			int[] candidates = null;
+			for (var i = 0; i + 3 <= query.length() && (candidates == null || candidates.length > 0); i++) {
+				candidates = intersect(candidates, getPostings(trigram(query, i)));
+			}
+			for (final var id : candidates) {
+				final var position = catalog.indexOf(id);
+				if (contains(position, query)) {
+					matches.add(position);
+				}
+			}
+		}
+
+		// Rank the matches
+		matches.sort(Comparator.<Integer>comparingInt(p -> startsWith(p, query) ? 0 : 1)
+				.thenComparing(this::compare).thenComparingInt(p -> catalog.getId(p)));
+		final var result = new TableItem<SquashProject>();
+		result.setTotalRecords(size());
+		result.setTotalDisplayRecords(matches.size());
+		result.setAaData(matches.stream().skip(Math.max(0, offset)).limit(Math.max(0, limit))
+				.map(p -> catalog.toProject(p)).toList());
+		return result;
+	}
+
+	private static int[] intersect(final int[] left, final int[] right) {
+		if (left == null) {
+			return right;
+		}
+		final var result = new IntBuffer();
+		for (int i = 0, j = 0; i < left.length && j < right.length;) {
+			if (left[i] == right[j]) {
+				result.add(left[i]);
+				i++;
+				j++;
+			} else if (left[i] < right[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return result.toSortedArray();
+	}
+
+	/**
+	 * Growable array of primitive integers.
+	 */
+	private static final class IntBuffer {
+		private int[] values = new int[4];
+		private int size;
+
+		private void add(final int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Return the sorted and distinct values.
+		 */
+		private int[] toSortedArray() {
+			final var result = Arrays.copyOf(values, size);
+			Arrays.sort(result);
+			return Arrays.stream(result).distinct().toArray();
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming parser of the Squash TM "generic-projects" DataTables listing. Only the "project-id" and "name" fields of
+ * each "aaData" entry are read, and the "created-on" and "last-mod-on" fields when requested. Other fields are
+ * skipped without being bound.
+ */
+public final class SquashProjectParser {
+
+	private static final JsonFactory FACTORY = new JsonFactory();
+
+	/**
+	 * Consumer of the projects with their creation and modification times.
+	 */
+	@FunctionalInterface
+	public interface DatedConsumer {
+
+		/**
+		 * Consume a project.
+		 *
+		 * @param project   The parsed project.
+		 * @param createdOn The creation time in milliseconds, <code>0</code> when unknown.
+		 * @param lastModOn The last modification time in milliseconds, <code>0</code> when never modified.
+		 * @return <code>false</code> to stop the parsing.
+		 */
+		boolean accept(SquashProject project, long createdOn, long lastModOn);
+	}
+
+	private SquashProjectParser() {
+		// Utility class
+	}
+
+	/**
+	 * Return all projects of the given listing.
+	 *
+	 * @param json The raw JSON listing. May be <code>null</code> or empty.
+	 * @return The parsed projects.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static List<SquashProject> parse(final String json) throws IOException {
+		final var result = new ArrayList<SquashProject>();
+		parse(json, result::add);
+		return result;
+	}
+
+	/**
+	 * Return the project matching to the given identifier. The parsing stops at the first match.
+	 *
+	 * @param json The raw JSON listing. May be <code>null</code> or empty.
+	 * @param id   The Squash TM project identifier.
+	 * @return The project or <code>null</code> when not found.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static SquashProject find(final String json, final int id) throws IOException {
+		final var result = new SquashProject[1];
+		parse(json, project -> {
+			if (project.getId() != null && project.getId() == id) {
+				result[0] = project;
+				return false;
+			}
+			return true;
+		});
+		return result[0];
+	}
+
+	/**
+	 * Return a page of projects with the totals of the listing.
+	 *
+	 * @param json The raw JSON listing. May be <code>null</code> or empty.
+	 * @return The parsed page.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static TableItem<SquashProject> parsePage(final String json) throws IOException {
+		final var result = new TableItem<SquashProject>();
+		final var projects = new ArrayList<SquashProject>();
+		result.setAaData(projects);
+		if (StringUtils.isNotEmpty(json)) {
+			try (JsonParser parser = FACTORY.createParser(json)) {
+				parse(parser, projects::add, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parse the listing, entry by entry.
+	 *
+	 * @param json     The raw JSON listing. May be <code>null</code> or empty.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static void parse(final String json, final Predicate<SquashProject> consumer) throws IOException {
+		if (StringUtils.isEmpty(json)) {
+			return;
+		}
+		try (JsonParser parser = FACTORY.createParser(json)) {
+			parse(parser, consumer);
+		}
+	}
+
+	/**
+	 * Parse the listing with the creation and modification times, entry by entry. The times are read as UTC local
+	 * date times, so they are only comparable between themselves.
+	 *
+	 * @param json     The raw JSON listing. May be <code>null</code> or empty.
+	 * @param format   The date format of the Squash TM node.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static void parse(final String json, final DateTimeFormatter format, final DatedConsumer consumer)
+			throws IOException {
+		if (StringUtils.isEmpty(json)) {
+			return;
+		}
+		final var dates = new long[2];
+		try (JsonParser parser = FACTORY.createParser(json)) {
+			parse(parser, project -> consumer.accept(project, dates[0], dates[1]), null, format, dates);
+		}
+	}
+
+	/**
+	 * Parse the listing from a stream, entry by entry. The stream is closed.
+	 *
+	 * @param json     The UTF-8 encoded JSON listing. May be <code>null</code>.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static void parse(final InputStream json, final Predicate<SquashProject> consumer) throws IOException {
+		if (json == null) {
+			return;
+		}
+		try (json; JsonParser parser = FACTORY.createParser(json)) {
+			parse(parser, consumer);
+		}
+	}
+
+	/**
+	 * Parse the listing from a stream with the creation and modification times, entry by entry. The stream is
+	 * closed.
+	 *
+	 * @param json     The UTF-8 encoded JSON listing. May be <code>null</code>.
+	 * @param format   The date format of the Squash TM node.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static void parse(final InputStream json, final DateTimeFormatter format, final DatedConsumer consumer)
+			throws IOException {
+		if (json == null) {
+			return;
+		}
+		final var dates = new long[2];
+		try (json; JsonParser parser = FACTORY.createParser(json)) {
+			parse(parser, project -> consumer.accept(project, dates[0], dates[1]), null, format, dates);
+		}
+	}
+
+	/**
+	 * Return all projects of the given listing stream. The stream is closed.
+	 *
+	 * @param json The UTF-8 encoded JSON listing. May be <code>null</code>.
+	 * @return The parsed projects.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public static List<SquashProject> parse(final InputStream json) throws IOException {
+		final var result = new ArrayList<SquashProject>();
+		parse(json, result::add);
+		return result;
+	}
+
+	/**
+	 * Parse the listing from an opened parser.
+	 *
+	 * @param parser   The JSON parser.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	static void parse(final JsonParser parser, final Predicate<SquashProject> consumer) throws IOException {
+		parse(parser, consumer, null);
+	}
+
+	/**
+	 * Parse the listing from an opened parser, collecting the totals.
+	 *
+	 * @param parser   The JSON parser.
+	 * @param consumer The project consumer. When it returns <code>false</code>, the parsing stops.
+	 * @param totals   The optional table receiving the totals of the listing. Totals placed after an early exit are
+	 *                 not read.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	static void parse(final JsonParser parser, final Predicate<SquashProject> consumer,
+			final TableItem<SquashProject> totals) throws IOException {
+		parse(parser, consumer, totals, null, null);
+	}
+
+	private static void parse(final JsonParser parser, final Predicate<SquashProject> consumer,
+			final TableItem<SquashProject> totals, final DateTimeFormatter format, final long[] dates)
+			throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			return;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final var field = parser.currentName();
+			final var token = parser.nextToken();
+			if (totals != null && "iTotalRecords".equals(field)) {
+				totals.setTotalRecords(parser.getValueAsLong());
+			} else if (totals != null && "iTotalDisplayRecords".equals(field)) {
+				totals.setTotalDisplayRecords(parser.getValueAsLong());
+			} else if (token == JsonToken.START_ARRAY && "aaData".equals(field)) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					if (!consumer.test(readProject(parser, format, dates))) {
+						// Early exit
+						return;
+					}
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	/**
+	 * Read a project entry, and its dates when a format is given.
+	 */
+	private static SquashProject readProject(final JsonParser parser, final DateTimeFormatter format,
+			final long[] dates) throws IOException {
+		final var project = new SquashProject();
+		if (format != null) {
+			dates[0] = 0;
+			dates[1] = 0;
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final var field = parser.currentName();
+			parser.nextToken();
+			if ("project-id".equals(field)) {
+				project.setProject(parser.getValueAsInt());
+			} else if ("name".equals(field)) {
+				project.setName(parser.getValueAsString());
+			} else if (format != null && "created-on".equals(field)) {
+				dates[0] = toTime(parser.getValueAsString(), format);
+			} else if (format != null && "last-mod-on".equals(field)) {
+				dates[1] = toTime(parser.getValueAsString(), format);
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return project;
+	}
+
+	/**
+	 * Return the time of a Squash TM date, or <code>0</code> when the date is missing, such as "-", or invalid.
+	 */
+	private static long toTime(final String date, final DateTimeFormatter format) {
+		try {
+			return date == null ? 0 : LocalDateTime.parse(date, format).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (final DateTimeParseException e) {
+			return 0;
+		}
+	}
+}
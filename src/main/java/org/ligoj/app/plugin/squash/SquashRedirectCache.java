@@ -0,0 +1,61 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Redirect targets by user and subscription, so the redirections resolve without database access. Since the
+ * resolution relies on the security context of the user, expired targets are never refreshed in background.
+ */
+@Component
+public class SquashRedirectCache extends AbstractSquashCache<SquashRedirectCache.Target> {
+
+	/**
+	 * Resolved redirect target of a subscription.
+	 *
+	 * @param url     The Squash TM base URL, ending with a slash.
+	 * @param library The Squash TM project identifier, also the requirement library identifier.
+	 */
+	public record Target(String url, String library) {
+	}
+
+	/**
+	 * Age of a target triggering a new resolution, in milliseconds. When zero or negative, the cache is disabled.
+	 */
+	@Value("${service-req-squash-redirect-ttl:600000}")
+	@Getter
+	private long ttl = 600000;
+
+	/**
+	 * Maximal amount of cached targets.
+	 */
+	@Value("${service-req-squash-redirect-max:10000}")
+	@Getter
+	private int maxSize = 10000;
+
+	@Override
+	protected long getMaxStale() {
+		// No background refresh
+		return ttl;
+	}
+
+	/**
+	 * Return the redirect target of a subscription, resolving it only when missing or too old.
+	 *
+	 * @param user         The current user.
+	 * @param subscription The subscription identifier.
+	 * @param loader       The target resolver.
+	 * @return The redirect target.
+	 * @throws IOException When the target cannot be resolved.
+	 */
+	public Target get(final String user, final int subscription, final Loader<Target> loader) throws IOException {
+		return get(user + "|" + subscription, loader);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-flight coalescing of the identical Squash TM requests. Concurrent requests sharing the same key wait for the
+ * request in progress and share its result or its failure, instead of running their own login and download.
+ */
+@Component
+public class SquashRequestCoalescer {
+
+	/**
+	 * Requests in progress by key.
+	 */
+	private final Map<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the result of a request, or join the identical request in progress.
+	 *
+	 * @param key      The request key, built from the node URL, the credentials and the resource.
+	 * @param supplier The request to execute when none is in progress for this key.
+	 * @param <T>      The result type.
+	 * @return The result of the request. May be <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(final String key, final Supplier<T> supplier) {
+		final var future = new CompletableFuture<>();
+		final var existing = inflight.putIfAbsent(key, future);
+		if (existing != null) {
+			return (T) join(existing);
+		}
+		try {
+			final var value = supplier.get();
+			future.complete(value);
+			return value;
+		} catch (final RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inflight.remove(key, future);
+		}
+	}
+
+	private Object join(final CompletableFuture<Object> future) {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the amount of requests in progress.
+	 *
+	 * @return The amount of requests in progress.
+	 */
+	public int size() {
+		return inflight.size();
+	}
+}
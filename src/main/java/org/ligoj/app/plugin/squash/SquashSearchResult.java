@@ -0,0 +1,37 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Merged result of a project search across several Squash TM nodes.
+ */
+@Getter
+@Setter
+public class SquashSearchResult {
+
+	/**
+	 * Ranked matching projects.
+	 */
+	private List<SquashNodeProject> projects = new ArrayList<>();
+
+	/**
+	 * Identifiers of the nodes that failed or did not answer before the deadline.
+	 */
+	private List<String> unavailable = new ArrayList<>();
+
+	/**
+	 * Indicate some nodes are missing from this result.
+	 *
+	 * @return <code>true</code> when at least one node is unavailable.
+	 */
+	public boolean isPartial() {
+		return !unavailable.isEmpty();
+	}
+}
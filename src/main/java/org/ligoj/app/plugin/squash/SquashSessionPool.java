@@ -0,0 +1,137 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import jakarta.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pool of authenticated Squash TM sessions. Each session is a {@link SquashCurlProcessor} holding the cookies of a
+ * successful login. Sessions are shared by node URL and credentials, and are borrowed exclusively by one request at
+ * a time.
+ */
+@Component
+public class SquashSessionPool {
+
+	/**
+	 * Maximal idle time of a pooled session, in milliseconds. Should be lower than the Squash TM session timeout.
+	 */
+	@Value("${service-req-squash-session-ttl:900000}")
+	private long ttl = 900000;
+
+	/**
+	 * Maximal amount of idle sessions kept for a node and a user.
+	 */
+	@Value("${service-req-squash-session-max:4}")
+	private int maxIdle = 4;
+
+	/**
+	 * Idle sessions by node and credentials.
+	 */
+	private final Map<String, Deque<SquashCurlProcessor>> idle = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the pool key of the given node parameters: URL, user and a digest of the password.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The pool key.
+	 */
+	protected String toKey(final Map<String, String> parameters) {
+		return Strings.CS.appendIfMissing(parameters.get(SquashPluginResource.PARAMETER_URL), "/") + "|"
+				+ parameters.get(SquashPluginResource.PARAMETER_USER) + "|"
+				+ digest(StringUtils.trimToEmpty(parameters.get(SquashPluginResource.PARAMETER_PASSWORD)));
+	}
+
+	private String digest(final String value) {
+		try {
+			return HexFormat.of().formatHex(
+					MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (final NoSuchAlgorithmException e) {
+			// SHA-256 is a mandatory algorithm of any JRE
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Borrow a session for the given node. The returned session is authenticated when an idle and not expired one
+	 * was available, otherwise it is a new processor to authenticate.
+	 *
+	 * @param parameters The node parameters.
+	 * @return A session exclusively owned by the caller until it is released or closed.
+	 */
+	public SquashCurlProcessor acquire(final Map<String, String> parameters) {
+		final var sessions = idle.get(toKey(parameters));
+		if (sessions != null) {
+			final var now = System.currentTimeMillis();
+			SquashCurlProcessor session;
+			while ((session = sessions.pollFirst()) != null) {
+				if (now - session.getLastUsed() < ttl) {
+					return session;
+				}
+				// Expired session
+				session.close();
+			}
+		}
+		return new SquashCurlProcessor();
+	}
+
+	/**
+	 * Give back a session to the pool. Not authenticated sessions and sessions exceeding the pool capacity are
+	 * closed.
+	 *
+	 * @param parameters The node parameters used to acquire this session.
+	 * @param session    The session to release.
+	 */
+	public void release(final Map<String, String> parameters, final SquashCurlProcessor session) {
+		if (!session.isAuthenticated()) {
+			session.close();
+			return;
+		}
+		final var sessions = idle.computeIfAbsent(toKey(parameters), k -> new ConcurrentLinkedDeque<>());
+		session.setLastUsed(System.currentTimeMillis());
+		sessions.offerFirst(session);
+		while (sessions.size() > maxIdle) {
+			final var oldest = sessions.pollLast();
+			if (oldest != null) {
+				oldest.close();
+			}
+		}
+	}
+
+	/**
+	 * Close all idle sessions of a node, for instance after one of them has been rejected by Squash TM.
+	 *
+	 * @param parameters The node parameters.
+	 */
+	public void evict(final Map<String, String> parameters) {
+		close(idle.remove(toKey(parameters)));
+	}
+
+	/**
+	 * Close all idle sessions.
+	 */
+	@PreDestroy
+	public void clear() {
+		idle.keySet().forEach(key -> close(idle.remove(key)));
+	}
+
+	private void close(final Deque<SquashCurlProcessor> sessions) {
+		if (sessions != null) {
+			sessions.forEach(SquashCurlProcessor::close);
+		}
+	}
+}
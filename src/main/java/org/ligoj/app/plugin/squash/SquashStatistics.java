@@ -0,0 +1,68 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Squash TM test case statistics of one or several libraries. The identifiers of the selected test cases are not
+ * kept.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Getter
+@Setter
+public class SquashStatistics {
+
+	/**
+	 * Amount of test cases by amount of bound requirements.
+	 */
+	private Map<String, Long> boundRequirementsStatistics = new TreeMap<>();
+
+	/**
+	 * Amount of test cases by importance.
+	 */
+	private Map<String, Long> importanceStatistics = new TreeMap<>();
+
+	/**
+	 * Amount of test cases by status.
+	 */
+	private Map<String, Long> statusesStatistics = new TreeMap<>();
+
+	/**
+	 * Amount of test cases by amount of steps.
+	 */
+	private Map<String, Long> sizeStatistics = new TreeMap<>();
+
+	/**
+	 * Return a new statistics instance summing this one and the given one.
+	 *
+	 * @param other The statistics to add.
+	 * @return The aggregated statistics.
+	 */
+	public SquashStatistics add(final SquashStatistics other) {
+		final var result = new SquashStatistics();
+		result.setBoundRequirementsStatistics(sum(boundRequirementsStatistics, other.getBoundRequirementsStatistics()));
+		result.setImportanceStatistics(sum(importanceStatistics, other.getImportanceStatistics()));
+		result.setStatusesStatistics(sum(statusesStatistics, other.getStatusesStatistics()));
+		result.setSizeStatistics(sum(sizeStatistics, other.getSizeStatistics()));
+		return result;
+	}
+
+	private static Map<String, Long> sum(final Map<String, Long> left, final Map<String, Long> right) {
+		final var result = new TreeMap<String, Long>();
+		if (left != null) {
+			result.putAll(left);
+		}
+		if (right != null) {
+			right.forEach((key, value) -> result.merge(key, value, Long::sum));
+		}
+		return result;
+	}
+}
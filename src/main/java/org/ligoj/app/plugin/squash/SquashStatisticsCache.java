@@ -0,0 +1,69 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Test case statistics cache by Squash TM node URL, credentials and library.
+ */
+@Component
+public class SquashStatisticsCache extends AbstractSquashCache<SquashStatistics> {
+
+	/**
+	 * Age of statistics triggering a background refresh, in milliseconds. When zero or negative, the cache is
+	 * disabled.
+	 */
+	@Value("${service-req-squash-statistics-ttl:600000}")
+	@Getter
+	private long ttl = 600000;
+
+	/**
+	 * Maximal age of statistics still served while refreshing, in milliseconds.
+	 */
+	@Value("${service-req-squash-statistics-stale:86400000}")
+	@Getter
+	private long maxStale = 86400000;
+
+	/**
+	 * Maximal amount of cached statistics.
+	 */
+	@Value("${service-req-squash-statistics-max:1000}")
+	@Getter
+	private int maxSize = 1000;
+
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	/**
+	 * Return the statistics of a library, fetching them only when missing or too old. The statistics are only shared
+	 * by the same credentials, so a wrong password never gets cached statistics.
+	 *
+	 * @param parameters The node parameters.
+	 * @param library    The Squash TM library identifier.
+	 * @param loader     The statistics loader.
+	 * @return The statistics of the library.
+	 * @throws IOException When the Squash TM content cannot be parsed.
+	 */
+	public SquashStatistics get(final Map<String, String> parameters, final int library,
+			final Loader<SquashStatistics> loader) throws IOException {
+		return get(sessionPool.toKey(parameters) + "|" + library, loader);
+	}
+
+	/**
+	 * Return the node URL of a key, without the credentials.
+	 */
+	@Override
+	protected String toLabel(final String key) {
+		return StringUtils.substringBefore(key, "|");
+	}
+}
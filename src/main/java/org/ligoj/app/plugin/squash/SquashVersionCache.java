@@ -0,0 +1,131 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.Strings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the Squash TM versions: the version of each node, and the latest released version with its entity tag
+ * used for the conditional revalidation.
+ */
+@Component
+public class SquashVersionCache {
+
+	/**
+	 * A cached version.
+	 *
+	 * @param version   The version.
+	 * @param etag      The entity tag of the response holding this version. May be <code>null</code>.
+	 * @param fetchedAt Fetch or revalidation time of this version, in milliseconds.
+	 */
+	public record Entry(String version, String etag, long fetchedAt) {
+
+		/**
+		 * Return a copy of this entry revalidated at the given time.
+		 *
+		 * @param now The revalidation time, in milliseconds.
+		 * @return The revalidated entry.
+		 */
+		public Entry revalidate(final long now) {
+			return new Entry(version, etag, now);
+		}
+	}
+
+	/**
+	 * Time to live of the version of a node, in milliseconds.
+	 */
+	@Value("${service-req-squash-version-ttl:3600000}")
+	private long versionTtl = 3600000;
+
+	/**
+	 * Time to live of the latest released version, in milliseconds. Once expired, the entry is revalidated with its
+	 * entity tag.
+	 */
+	@Value("${service-req-squash-last-version-ttl:21600000}")
+	private long lastVersionTtl = 21600000;
+
+	/**
+	 * Versions by node URL.
+	 */
+	private final Map<String, Entry> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * The latest released version.
+	 */
+	private volatile Entry lastVersion;
+
+	private String toKey(final Map<String, String> parameters) {
+		return Strings.CS.appendIfMissing(parameters.get(SquashPluginResource.PARAMETER_URL), "/");
+	}
+
+	/**
+	 * Return the version of a node when cached and not expired.
+	 *
+	 * @param parameters The node parameters.
+	 * @return The cached version or <code>null</code>.
+	 */
+	public String getVersion(final Map<String, String> parameters) {
+		final var entry = versions.get(toKey(parameters));
+		return entry == null || isExpired(entry, versionTtl) ? null : entry.version();
+	}
+
+	/**
+	 * Save the version of a node.
+	 *
+	 * @param parameters The node parameters.
+	 * @param version    The detected version. When <code>null</code>, the cached version is removed.
+	 */
+	public void putVersion(final Map<String, String> parameters, final String version) {
+		if (version == null) {
+			versions.remove(toKey(parameters));
+		} else {
+			versions.put(toKey(parameters), new Entry(version, null, System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Return the latest released version entry, even when expired.
+	 *
+	 * @return The cached entry or <code>null</code>.
+	 */
+	public Entry getLastVersion() {
+		return lastVersion;
+	}
+
+	/**
+	 * Indicate the given latest released version entry needs a revalidation.
+	 *
+	 * @param entry The cached entry. May be <code>null</code>.
+	 * @return <code>true</code> when the entry is missing or expired.
+	 */
+	public boolean isExpired(final Entry entry) {
+		return entry == null || isExpired(entry, lastVersionTtl);
+	}
+
+	private boolean isExpired(final Entry entry, final long ttl) {
+		return System.currentTimeMillis() - entry.fetchedAt() >= ttl;
+	}
+
+	/**
+	 * Save the latest released version.
+	 *
+	 * @param entry The new entry.
+	 */
+	public void putLastVersion(final Entry entry) {
+		this.lastVersion = entry;
+	}
+
+	/**
+	 * Invalidate all cached versions.
+	 */
+	public void clear() {
+		versions.clear();
+		lastVersion = null;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming extractor of the Squash TM version from the administration page. The page is read through a small fixed
+ * buffer and the reading stops as soon as the version is found. Tags split across buffer boundaries are supported.
+ */
+public final class SquashVersionExtractor {
+
+	/**
+	 * Squash TM version tags
+	 */
+	static final String VERSION_TAG_START = "<label>Version</label><span>";
+	static final String VERSION_TAG_END = "</span>";
+
+	/**
+	 * Read buffer size, in characters.
+	 */
+	private static final int BUFFER_SIZE = 2048;
+
+	/**
+	 * Maximal length of a version. Longer values are considered as a malformed page.
+	 */
+	private static final int MAX_VERSION_LENGTH = 256;
+
+	private static final int[] START_FAILURE = failure(VERSION_TAG_START);
+	private static final int[] END_FAILURE = failure(VERSION_TAG_END);
+
+	private SquashVersionExtractor() {
+		// Utility class
+	}
+
+	/**
+	 * Return the Knuth-Morris-Pratt failure table of the given pattern.
+	 */
+	private static int[] failure(final String pattern) {
+		final var result = new int[pattern.length()];
+		for (int i = 1, k = 0; i < pattern.length(); i++) {
+			while (k > 0 && pattern.charAt(i) != pattern.charAt(k)) {
+				k = result[k - 1];
+			}
+			if (pattern.charAt(i) == pattern.charAt(k)) {
+				k++;
+			}
+			result[i] = k;
+		}
+		return result;
+	}
+
+	/**
+	 * Advance the matching state of a pattern with the given character.
+	 *
+	 * @return The new amount of matched characters.
+	 */
+	private static int next(final String pattern, final int[] failure, final int matched, final char c) {
+		var k = matched;
+		while (k > 0 && c != pattern.charAt(k)) {
+			k = failure[k - 1];
+		}
+		return c == pattern.charAt(k) ? k + 1 : k;
+	}
+
+	/**
+	 * Return the version from the administration page.
+	 *
+	 * @param page The raw HTML of the administration page. May be <code>null</code>.
+	 * @return The version, or an empty string when not found.
+	 */
+	public static String extract(final String page) {
+		if (page == null) {
+			return "";
+		}
+		try {
+			return extract(new StringReader(page));
+		} catch (final IOException e) {
+			// Not possible with a string
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Return the version from the administration page. The stream is not closed.
+	 *
+	 * @param page The UTF-8 encoded administration page.
+	 * @return The version, or an empty string when not found.
+	 * @throws IOException When the page cannot be read.
+	 */
+	public static String extract(final InputStream page) throws IOException {
+		return extract(new InputStreamReader(page, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Return the version from the administration page. The reader is not closed.
+	 *
+	 * @param page The administration page.
+	 * @return The version, or an empty string when not found.
+	 * @throws IOException When the page cannot be read.
+	 */
+	public static String extract(final Reader page) throws IOException {
+		final var buffer = new char[BUFFER_SIZE];
+		final var version = new StringBuilder();
+		var start = 0;
+		var end = 0;
+		int read;
+		while ((read = page.read(buffer)) != -1) {
+			for (var i = 0; i < read; i++) {
+				final var c = buffer[i];
+				if (start < VERSION_TAG_START.length()) {
+					// Looking for the start tag
+					start = next(VERSION_TAG_START, START_FAILURE, start, c);
+					continue;
+				}
+
+				// Inside the version, looking for the end tag
+				version.append(c);
+				end = next(VERSION_TAG_END, END_FAILURE, end, c);
+				if (end == VERSION_TAG_END.length()) {
+					return version.substring(0, version.length() - VERSION_TAG_END.length());
+				}
+				if (version.length() > MAX_VERSION_LENGTH + VERSION_TAG_END.length()) {
+					// Malformed page
+					return "";
+				}
+			}
+		}
+		return "";
+	}
+}
@@ -6,6 +6,7 @@ package org.ligoj.app.plugin.squash;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -26,4 +27,16 @@ public class TableItem<K> {
 	 */
 	private List<K> aaData;
 
+	/**
+	 * Total amount of records, without criteria.
+	 */
+	@JsonProperty("iTotalRecords")
+	private long totalRecords;
+
+	/**
+	 * Total amount of records matching the criteria.
+	 */
+	@JsonProperty("iTotalDisplayRecords")
+	private long totalDisplayRecords;
+
 }
@@ -0,0 +1,148 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.model.*;
+import org.ligoj.app.resource.subscription.SubscriptionResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * Shared data and Squash TM mocks of the {@link SquashPluginResource} tests.
+ */
+abstract class AbstractSquashResourceTest extends AbstractServerTest {
+
+	protected static final String NODE = "service:req:squash:dig";
+
+	@Autowired
+	protected SquashPluginResource resource;
+
+	@Autowired
+	protected SubscriptionResource subscriptionResource;
+
+	@Autowired
+	protected SquashSessionPool sessionPool;
+
+	@Autowired
+	protected SquashCatalogCache catalogCache;
+
+	@Autowired
+	protected SquashVersionCache versionCache;
+
+	@Autowired
+	protected SquashHttpClient httpClient;
+
+	@Autowired
+	protected SquashStatisticsCache statisticsCache;
+
+	@Autowired
+	protected SquashHealthProber prober;
+
+	@Autowired
+	protected SquashRedirectCache redirectCache;
+
+	@Autowired
+	protected SquashBulkhead bulkhead;
+
+	protected int subscription;
+
+	/**
+	 * Injected latency of each mocked Squash TM response, in milliseconds.
+	 */
+	protected int latency;
+
+	@BeforeEach
+	void prepareData() throws IOException {
+		// Only with Spring context
+		persistEntities("csv",
+				new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
+				StandardCharsets.UTF_8);
+		this.subscription = getSubscription("Jupiter", SquashPluginResource.KEY);
+		sessionPool.clear();
+		catalogCache.clear();
+		versionCache.clear();
+		httpClient.clear();
+		statisticsCache.clear();
+		redirectCache.clear();
+		bulkhead.clear();
+		prober.clear();
+
+		// Coverage only
+		Assertions.assertEquals("service:req:squash", resource.getKey());
+	}
+
+	/**
+	 * Create a subscription of Jupiter to the Squash node, linked to the given Squash project.
+	 */
+	protected int newSubscription(final String project) {
+		final var entity = new Subscription();
+		entity.setProject(em.find(Subscription.class, subscription).getProject());
+		entity.setNode(em.find(Node.class, NODE));
+		em.persist(entity);
+		final var value = new ParameterValue();
+		value.setParameter(em.find(Parameter.class, SquashPluginResource.PARAMETER_PROJECT));
+		value.setData(project);
+		value.setSubscription(entity);
+		em.persist(value);
+		em.flush();
+		return entity.getId();
+	}
+
+	/**
+	 * Return the content of a Squash TM mock resource.
+	 */
+	protected String read(final String name) throws IOException {
+		return IOUtils.toString(new ClassPathResource("mock-server/squash/" + name).getInputStream(),
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Mock the main entry and the login form.
+	 */
+	protected void stubLogin() {
+		// Main entry
+		httpServer.stubFor(get(urlEqualTo("/login"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(latency).withBody("")));
+
+		// Login
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY)
+				.withFixedDelay(latency).withBody("").withHeader("location", "some")));
+	}
+
+	/**
+	 * Mock the administration page giving the version.
+	 */
+	protected void stubAdmin() throws IOException {
+		httpServer.stubFor(get(urlEqualTo("/administration")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withFixedDelay(latency).withBody(read("administration.html"))));
+	}
+
+	/**
+	 * Mock the full project listing.
+	 */
+	protected void stubProjects() throws IOException {
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(latency)
+						.withBody(read("generic-projects.json"))));
+	}
+
+	/**
+	 * Mock the project search on "client1".
+	 */
+	protected void stubProjectSearch() throws IOException {
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=20&sSearch=client1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(latency)
+						.withBody(read("generic-projects-client1.json"))));
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class of {@link SquashBulkhead}
+ */
+class SquashBulkheadTest {
+
+	private static final Map<String, String> PARAMETERS = Map.of(SquashPluginResource.PARAMETER_URL,
+			"http://localhost:8120");
+
+	private static final Map<String, String> OTHER = Map.of(SquashPluginResource.PARAMETER_URL,
+			"http://localhost:8121/");
+
+	private SquashBulkhead bulkhead;
+
+	@BeforeEach
+	void createBulkhead() {
+		bulkhead = new SquashBulkhead();
+		ReflectionTestUtils.setField(bulkhead, "initialLimit", 2);
+		ReflectionTestUtils.setField(bulkhead, "maxLimit", 3);
+		ReflectionTestUtils.setField(bulkhead, "maxQueue", 0);
+		ReflectionTestUtils.setField(bulkhead, "queueTimeout", 100);
+	}
+
+	@Test
+	void acquireQueueFull() {
+		try (var p1 = bulkhead.acquire(PARAMETERS); var p2 = bulkhead.acquire(PARAMETERS)) {
+			Assertions.assertThrows(ServiceUnavailableException.class, () -> bulkhead.acquire(PARAMETERS));
+
+			// Other nodes are not impacted
+			bulkhead.acquire(OTHER).close();
+		}
+		bulkhead.acquire(PARAMETERS).close();
+	}
+
+	@Test
+	void acquireQueueTimeout() {
+		ReflectionTestUtils.setField(bulkhead, "maxQueue", 1);
+		try (var p1 = bulkhead.acquire(PARAMETERS); var p2 = bulkhead.acquire(PARAMETERS)) {
+			final var start = System.currentTimeMillis();
+			final var e = Assertions.assertThrows(ServiceUnavailableException.class, () -> bulkhead.acquire(PARAMETERS));
+			Assertions.assertTrue(System.currentTimeMillis() - start >= 100);
+			Assertions.assertEquals(503, e.getResponse().getStatus());
+		}
+	}
+
+	@Test
+	void acquireQueued() throws Exception {
+		ReflectionTestUtils.setField(bulkhead, "maxQueue", 1);
+		ReflectionTestUtils.setField(bulkhead, "queueTimeout", 5000);
+		final var acquired = new CountDownLatch(1);
+		try (var executor = Executors.newSingleThreadExecutor()) {
+			final var p1 = bulkhead.acquire(PARAMETERS);
+			final var p2 = bulkhead.acquire(PARAMETERS);
+			final var queued = executor.submit(() -> {
+				try (var p3 = bulkhead.acquire(PARAMETERS)) {
+					acquired.countDown();
+				}
+			});
+			Assertions.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+			p1.close();
+			Assertions.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+			queued.get(5, TimeUnit.SECONDS);
+			p2.close();
+		}
+	}
+
+	@Test
+	void adaptLimit() {
+		Assertions.assertEquals(2, bulkhead.getLimit(PARAMETERS));
+
+		// Fast exchanges increase the limit up to the maximum
+		for (var i = 0; i < 10; i++) {
+			bulkhead.acquire(PARAMETERS).close();
+		}
+		Assertions.assertEquals(3, bulkhead.getLimit(PARAMETERS));
+
+		// Slow exchanges halve the limit down to one
+		ReflectionTestUtils.setField(bulkhead, "latencyTarget", -1);
+		bulkhead.acquire(PARAMETERS).close();
+		Assertions.assertEquals(1, bulkhead.getLimit(PARAMETERS));
+		bulkhead.acquire(PARAMETERS).close();
+		Assertions.assertEquals(1, bulkhead.getLimit(PARAMETERS));
+
+		bulkhead.clear();
+		Assertions.assertEquals(2, bulkhead.getLimit(PARAMETERS));
+	}
+
+	@Test
+	void adaptLimitBulk() {
+		// Slow bulk exchanges do not decrease the limit, but are still bounded
+		ReflectionTestUtils.setField(bulkhead, "latencyTarget", -1);
+		bulkhead.acquire(PARAMETERS, false).close();
+		Assertions.assertEquals(2, bulkhead.getLimit(PARAMETERS));
+		try (var p1 = bulkhead.acquire(PARAMETERS, false); var p2 = bulkhead.acquire(PARAMETERS)) {
+			Assertions.assertThrows(ServiceUnavailableException.class, () -> bulkhead.acquire(PARAMETERS, false));
+		}
+		Assertions.assertEquals(1, bulkhead.getLimit(PARAMETERS));
+	}
+
+	@Test
+	void acquireUnlimited() {
+		ReflectionTestUtils.setField(bulkhead, "initialLimit", 0);
+		for (var i = 0; i < 10; i++) {
+			bulkhead.acquire(PARAMETERS);
+		}
+	}
+}
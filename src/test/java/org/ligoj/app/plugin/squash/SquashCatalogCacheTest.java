@@ -0,0 +1,274 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class of {@link SquashCatalogCache}
+ */
+class SquashCatalogCacheTest {
+
+	private static final Map<String, String> PARAMETERS = Map.of(SquashPluginResource.PARAMETER_URL,
+			"http://localhost:8120", SquashPluginResource.PARAMETER_USER, "junit");
+
+	private SquashCatalogCache cache;
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@BeforeEach
+	void createCache() {
+		cache = new SquashCatalogCache();
+		cache.sessionPool = new SquashSessionPool();
+	}
+
+	@AfterEach
+	void shutdown() {
+		cache.shutdown();
+	}
+
+	private SquashProjectCatalog newCatalog(final long fetchedAt) {
+		loads.incrementAndGet();
+		final var project = new SquashProject();
+		project.setProject(1);
+		project.setName("P1");
+		return new SquashProjectCatalog(List.of(project), fetchedAt);
+	}
+
+	@Test
+	void getCached() throws Exception {
+		final var catalog = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+		Assertions.assertSame(catalog, cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis())));
+		Assertions.assertEquals("P1", catalog.get(1).getName());
+		Assertions.assertNull(catalog.get(2));
+		Assertions.assertEquals(1, loads.get());
+	}
+
+	@Test
+	void getDisabled() throws Exception {
+		ReflectionTestUtils.setField(cache, "ttl", 0);
+		cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+		cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	void getStale() throws Exception {
+		// Stale catalog is served while the refresh takes place
+		final var stale = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis() - 400000));
+		final var refreshed = new CountDownLatch(1);
+		Assertions.assertSame(stale, cache.get(PARAMETERS, p -> {
+			final var catalog = newCatalog(System.currentTimeMillis());
+			refreshed.countDown();
+			return catalog;
+		}));
+		Assertions.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+		for (var i = 0; i < 50 && cache.peek(PARAMETERS) == stale; i++) {
+			Thread.sleep(20);
+		}
+		Assertions.assertNotSame(stale, cache.peek(PARAMETERS));
+	}
+
+	@Test
+	void getExpired() throws Exception {
+		final var expired = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis() - 4000000));
+		Assertions.assertNotSame(expired, cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis())));
+	}
+
+	@Test
+	void getSingleFlight() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		final var executor = Executors.newFixedThreadPool(4);
+		try {
+			final var results = new ArrayList<Future<SquashProjectCatalog>>();
+			results.add(executor.submit(() -> cache.get(PARAMETERS, p -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return newCatalog(System.currentTimeMillis());
+			})));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			for (var i = 0; i < 3; i++) {
+				results.add(executor.submit(() -> cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()))));
+			}
+			Thread.sleep(100);
+			release.countDown();
+			final var first = results.getFirst().get(5, TimeUnit.SECONDS);
+			for (final var result : results) {
+				Assertions.assertSame(first, result.get(5, TimeUnit.SECONDS));
+			}
+			Assertions.assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void reload() throws Exception {
+		final var catalog = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+
+		// Recently fetched catalog is not reloaded
+		Assertions.assertSame(catalog, cache.reload(PARAMETERS, p -> newCatalog(System.currentTimeMillis())));
+		Assertions.assertEquals(1, loads.get());
+
+		ReflectionTestUtils.setField(cache, "reloadInterval", 0L);
+		final var reloaded = cache.reload(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+		Assertions.assertNotSame(catalog, reloaded);
+		Assertions.assertSame(reloaded, cache.peek(PARAMETERS));
+		Assertions.assertEquals(2, loads.get());
+
+		// A failed reload is rate limited too
+		ReflectionTestUtils.setField(cache, "reloadInterval", 60000L);
+		cache.put(cache.toKey(PARAMETERS), newCatalog(System.currentTimeMillis() - 120000));
+		Assertions.assertThrows(IOException.class, () -> cache.reload(PARAMETERS, p -> {
+			throw new IOException("down");
+		}));
+		Assertions.assertNotNull(cache.reload(PARAMETERS, p -> newCatalog(System.currentTimeMillis())));
+		Assertions.assertEquals(3, loads.get());
+	}
+
+	@Test
+	void getByCredentials() throws Exception {
+		final var catalog = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis()));
+		final var parameters = new HashMap<>(PARAMETERS);
+		parameters.put(SquashPluginResource.PARAMETER_PASSWORD, "wrong");
+
+		// Another password does not share the cached catalog
+		Assertions.assertNull(cache.peek(parameters));
+		Assertions.assertNotSame(catalog, cache.get(parameters, p -> newCatalog(System.currentTimeMillis())));
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	void toLabel() {
+		final var parameters = new HashMap<>(PARAMETERS);
+		parameters.put(SquashPluginResource.PARAMETER_PASSWORD, "secret");
+
+		// The logged key holds no credential
+		Assertions.assertEquals("http://localhost:8120/", cache.toLabel(cache.toKey(parameters)));
+	}
+
+	@Test
+	void getRestored(@TempDir final Path directory) throws Exception {
+		final var snapshot = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(snapshot, "directory", directory.toString());
+		cache.snapshot = snapshot;
+		final var saved = cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis() - 4000000));
+
+		// Restart
+		cache.shutdown();
+		cache = new SquashCatalogCache();
+		cache.sessionPool = new SquashSessionPool();
+		cache.snapshot = snapshot;
+		cache.restoreSnapshots();
+
+		// The snapshot is served while being refreshed, even when expired
+		final var release = new CountDownLatch(1);
+		final var refreshed = new CountDownLatch(1);
+		final var restored = cache.get(PARAMETERS, p -> {
+			try {
+				release.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			final var catalog = newCatalog(System.currentTimeMillis());
+			refreshed.countDown();
+			return catalog;
+		});
+		Assertions.assertEquals(saved.getFetchedAt(), restored.getFetchedAt());
+		Assertions.assertEquals("P1", restored.get(1).getName());
+
+		// Concurrent callers do not wait for the refresh
+		Assertions.assertSame(restored, cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis())));
+		Assertions.assertEquals(1, loads.get());
+		release.countDown();
+		Assertions.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+		for (var i = 0; i < 50 && cache.peek(PARAMETERS) == restored; i++) {
+			Thread.sleep(20);
+		}
+		Assertions.assertNotSame(restored, cache.peek(PARAMETERS));
+		Assertions.assertEquals(2, loads.get());
+	}
+
+	@Test
+	void getRestoredRefreshFailed(@TempDir final Path directory) throws Exception {
+		final var snapshot = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(snapshot, "directory", directory.toString());
+		cache.snapshot = snapshot;
+		cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis() - 4000000));
+		cache.shutdown();
+		cache = new SquashCatalogCache();
+		cache.sessionPool = new SquashSessionPool();
+		cache.snapshot = snapshot;
+		cache.restoreSnapshots();
+
+		// The restored catalog is still served after a failed refresh, and is refreshed again
+		final var failures = new CountDownLatch(2);
+		final SquashCatalogCache.Loader failing = p -> {
+			failures.countDown();
+			throw new IOException("down");
+		};
+		final var restored = cache.get(PARAMETERS, failing);
+		for (var i = 0; i < 50 && failures.getCount() > 0; i++) {
+			Assertions.assertSame(restored, cache.get(PARAMETERS, failing));
+			Thread.sleep(20);
+		}
+		Assertions.assertEquals(0, failures.getCount());
+
+		// The snapshot is only replaced by a successful load
+		Assertions.assertEquals(restored.getFetchedAt(), snapshot.readAll().values().iterator().next().getFetchedAt());
+	}
+
+	@Test
+	void evictSnapshot(@TempDir final Path directory) throws Exception {
+		final var snapshot = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(snapshot, "directory", directory.toString());
+		ReflectionTestUtils.setField(cache, "maxSize", 1);
+		cache.snapshot = snapshot;
+		cache.get(PARAMETERS, p -> newCatalog(System.currentTimeMillis() - 1000));
+		final var parameters = new HashMap<>(PARAMETERS);
+		parameters.put(SquashPluginResource.PARAMETER_USER, "other");
+		cache.get(parameters, p -> newCatalog(System.currentTimeMillis()));
+
+		// The oldest catalog is evicted with its snapshot
+		Assertions.assertNull(cache.peek(PARAMETERS));
+		Assertions.assertEquals(List.of(snapshot.toId(cache.toKey(parameters))),
+				List.copyOf(snapshot.readAll().keySet()));
+
+		// Only the most recent snapshots fitting in the cache are restored
+		snapshot.write(snapshot.toId(cache.toKey(PARAMETERS)), newCatalog(System.currentTimeMillis() - 1000));
+		cache.shutdown();
+		cache = new SquashCatalogCache();
+		cache.sessionPool = new SquashSessionPool();
+		cache.snapshot = snapshot;
+		ReflectionTestUtils.setField(cache, "maxSize", 1);
+		cache.restoreSnapshots();
+		Assertions.assertEquals(List.of(snapshot.toId(cache.toKey(parameters))),
+				List.copyOf(snapshot.readAll().keySet()));
+
+		cache.clear();
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+	}
+}
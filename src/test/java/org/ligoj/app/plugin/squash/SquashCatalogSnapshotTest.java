@@ -0,0 +1,138 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class of {@link SquashCatalogSnapshot}
+ */
+class SquashCatalogSnapshotTest {
+
+	@TempDir
+	private Path directory;
+
+	private SquashCatalogSnapshot snapshot;
+
+	@BeforeEach
+	void createSnapshot() {
+		snapshot = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(snapshot, "directory", directory.toString());
+	}
+
+	@Test
+	void writeAndRead() {
+		snapshot.write("http://localhost:8120/|junit",
+				new SquashProjectCatalog(new int[] { 79, 22, 1 }, List.of("Client1 - P1", "Élément", ""), 1000L, 900L,
+						500L, null));
+		snapshot.write("http://localhost:8121/|junit",
+				new SquashProjectCatalog(new int[0], List.of(), 2000L, null));
+
+		final var catalogs = snapshot.readAll();
+		Assertions.assertEquals(2, catalogs.size());
+		final var catalog = catalogs.get("http://localhost:8120/|junit");
+		Assertions.assertEquals(3, catalog.size());
+		Assertions.assertEquals("Élément", catalog.get(22).getName());
+		Assertions.assertEquals("", catalog.get(1).getName());
+		Assertions.assertEquals(79, catalog.getId(0));
+		Assertions.assertEquals(1000L, catalog.getFetchedAt());
+		Assertions.assertEquals(900L, catalog.getWatermark());
+		Assertions.assertEquals(500L, catalog.getReconciledAt());
+		Assertions.assertEquals(1, catalog.getIndex().search("élé", 0, 10).getAaData().size());
+		Assertions.assertEquals(0, catalogs.get("http://localhost:8121/|junit").size());
+	}
+
+	@Test
+	void toId() throws IOException {
+		final var key = "http://localhost:8120/|junit|0123456789abcdef";
+		final var id = snapshot.toId(key);
+		Assertions.assertEquals(64, id.length());
+		Assertions.assertNotEquals(key, id);
+		snapshot.write(id, new SquashProjectCatalog(new int[] { 1 }, List.of("A"), 1000L, null));
+
+		// The cache key is not saved, and the identifier is stable for this directory
+		try (var files = Files.list(directory)) {
+			for (final var file : files.toList()) {
+				Assertions.assertFalse(Files.readString(file, StandardCharsets.ISO_8859_1).contains("junit"));
+			}
+		}
+		final var restarted = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(restarted, "directory", directory.toString());
+		Assertions.assertEquals(id, restarted.toId(key));
+		Assertions.assertEquals("A", restarted.readAll().get(id).get(1).getName());
+
+		// Another installation gets other identifiers
+		final var other = new SquashCatalogSnapshot();
+		ReflectionTestUtils.setField(other, "directory", directory.resolve("other").toString());
+		Assertions.assertNotEquals(id, other.toId(key));
+	}
+
+	@Test
+	void readPreviousFormat() throws IOException {
+		final var file = directory.resolve("previous.catalog");
+		Files.write(file, new byte[] { 0x53, 0x51, 0x54, 0x43, 0, 0, 0, 1, 0, 0, 0, 0 });
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+
+		// The snapshot holding a cache key is deleted
+		Assertions.assertFalse(Files.exists(file));
+	}
+
+	@Test
+	void writeReplace() {
+		snapshot.write("key", new SquashProjectCatalog(new int[] { 1 }, List.of("A"), 1000L, null));
+		snapshot.write("key", new SquashProjectCatalog(new int[] { 2 }, List.of("B"), 2000L, null));
+		final var catalog = snapshot.readAll().get("key");
+		Assertions.assertEquals("B", catalog.get(2).getName());
+		Assertions.assertNull(catalog.get(1));
+	}
+
+	@Test
+	void delete() {
+		snapshot.write("key", new SquashProjectCatalog(new int[] { 1 }, List.of("A"), 1000L, null));
+		snapshot.write("other", new SquashProjectCatalog(new int[] { 2 }, List.of("B"), 2000L, null));
+		snapshot.delete("key");
+		snapshot.delete("missing");
+		Assertions.assertEquals(List.of("other"), List.copyOf(snapshot.readAll().keySet()));
+		snapshot.deleteAll();
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+	}
+
+	@Test
+	void readCorrupted() throws IOException {
+		snapshot.write("key", new SquashProjectCatalog(new int[] { 1, 2 }, List.of("A", "B"), 1000L, null));
+		try (var files = Files.list(directory)) {
+			final var file = files.findFirst().orElseThrow();
+			final var bytes = Files.readAllBytes(file);
+			Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+		}
+		Files.writeString(directory.resolve("other.catalog"), "not a catalog");
+		Files.writeString(directory.resolve("ignored.txt"), "ignored");
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+	}
+
+	@Test
+	void disabled() {
+		ReflectionTestUtils.setField(snapshot, "directory", "");
+		Assertions.assertFalse(snapshot.isEnabled());
+		snapshot.write("key", new SquashProjectCatalog(new int[] { 1 }, List.of("A"), 1000L, null));
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+	}
+
+	@Test
+	void readMissingDirectory() {
+		ReflectionTestUtils.setField(snapshot, "directory", directory.resolve("missing").toString());
+		Assertions.assertTrue(snapshot.readAll().isEmpty());
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ligoj.bootstrap.MatcherUtil;
+import org.ligoj.bootstrap.core.validation.ValidationJsonException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class of {@link SquashHealthProber}
+ */
+class SquashHealthProberTest {
+
+	private static final Map<String, String> PARAMETERS = Map.of(SquashPluginResource.PARAMETER_URL,
+			"http://localhost:8120", SquashPluginResource.PARAMETER_USER, "junit");
+
+	private SquashHealthProber prober;
+
+	private final AtomicInteger probes = new AtomicInteger();
+
+	private final AtomicBoolean down = new AtomicBoolean();
+
+	@BeforeEach
+	void createProber() {
+		prober = new SquashHealthProber();
+		prober.sessionPool = new SquashSessionPool();
+	}
+
+	@AfterEach
+	void shutdown() {
+		prober.shutdown();
+	}
+
+	private void probe(final Map<String, String> parameters, final boolean live, final int count) {
+		probes.incrementAndGet();
+		if (down.get()) {
+			throw new IllegalStateException("down");
+		}
+	}
+
+	@Test
+	void checkCached() {
+		Assertions.assertTrue(prober.check(PARAMETERS, this::probe, false));
+		Assertions.assertTrue(prober.check(PARAMETERS, this::probe, false));
+		Assertions.assertEquals(1, probes.get());
+		Assertions.assertTrue(prober.getStatus(PARAMETERS).isUp());
+
+		// Forced live check
+		down.set(true);
+		Assertions.assertEquals("down",
+				Assertions.assertThrows(IllegalStateException.class, () -> prober.check(PARAMETERS, this::probe, true))
+						.getMessage());
+		Assertions.assertEquals(2, probes.get());
+
+		// Cached failure, a new exception for each check
+		final var failure = Assertions.assertThrows(IllegalStateException.class,
+				() -> prober.check(PARAMETERS, this::probe, false));
+		Assertions.assertNotSame(failure,
+				Assertions.assertThrows(IllegalStateException.class, () -> prober.check(PARAMETERS, this::probe, false)));
+		Assertions.assertSame(prober.getStatus(PARAMETERS).failure(), failure.getCause());
+		Assertions.assertEquals(2, probes.get());
+		Assertions.assertFalse(prober.getStatus(PARAMETERS).isUp());
+
+		prober.clear();
+		Assertions.assertNull(prober.getStatus(PARAMETERS));
+	}
+
+	@Test
+	void checkValidation() {
+		final var failure = Assertions.assertThrows(ValidationJsonException.class, () -> prober.check(PARAMETERS,
+				(p, live, count) -> {
+					throw new ValidationJsonException(SquashPluginResource.PARAMETER_URL, "squash-connection");
+				}, false));
+		MatcherUtil.assertThrows(failure, SquashPluginResource.PARAMETER_URL, "squash-connection");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+				() -> prober.check(PARAMETERS, this::probe, false)), SquashPluginResource.PARAMETER_URL,
+				"squash-connection");
+	}
+
+	@Test
+	void checkNullParameter() {
+		final var parameters = new HashMap<>(PARAMETERS);
+		parameters.put(SquashPluginResource.PARAMETER_PROJECT, null);
+		Assertions.assertTrue(prober.check(parameters, this::probe, false));
+	}
+
+	@Test
+	void checkCount() {
+		final var counts = new ArrayList<Integer>();
+		prober.check(PARAMETERS, (p, live, count) -> counts.add(count), false);
+		prober.check(PARAMETERS, (p, live, count) -> counts.add(count), true);
+		prober.check(PARAMETERS, (p, live, count) -> counts.add(count), true);
+		Assertions.assertEquals(List.of(0, 1, 2), counts);
+	}
+
+	@Test
+	void checkDisabled() {
+		ReflectionTestUtils.setField(prober, "interval", 0);
+		prober.check(PARAMETERS, this::probe, false);
+		prober.check(PARAMETERS, this::probe, false);
+		Assertions.assertEquals(2, probes.get());
+		Assertions.assertNull(prober.getStatus(PARAMETERS));
+	}
+
+	@Test
+	void checkBackground() throws InterruptedException {
+		ReflectionTestUtils.setField(prober, "interval", 50);
+		prober.check(PARAMETERS, this::probe, false);
+		down.set(true);
+		for (var i = 0; i < 100 && prober.getStatus(PARAMETERS).isUp(); i++) {
+			Thread.sleep(20);
+		}
+
+		// The background probe has detected the failure
+		Assertions.assertFalse(prober.getStatus(PARAMETERS).isUp());
+		Assertions.assertTrue(probes.get() >= 2);
+	}
+
+	@Test
+	void checkIdle() throws InterruptedException {
+		ReflectionTestUtils.setField(prober, "interval", 20);
+		ReflectionTestUtils.setField(prober, "idle", 1);
+		prober.check(PARAMETERS, this::probe, false);
+		for (var i = 0; i < 100 && prober.getStatus(PARAMETERS) != null; i++) {
+			Thread.sleep(20);
+		}
+
+		// Not requested node is forgotten with its probe count
+		Assertions.assertNull(prober.getStatus(PARAMETERS));
+		final var counts = new ArrayList<Integer>();
+		prober.check(PARAMETERS, (p, live, count) -> counts.add(count), false);
+		Assertions.assertEquals(List.of(0), counts);
+	}
+}
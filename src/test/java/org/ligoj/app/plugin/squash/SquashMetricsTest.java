@@ -0,0 +1,63 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Test class of {@link SquashMetrics}
+ */
+class SquashMetricsTest {
+
+	private static final Map<String, String> PARAMETERS = Map.of(SquashPluginResource.PARAMETER_URL,
+			"http://localhost:8120");
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private SquashMetrics metrics;
+
+	@BeforeEach
+	void createMetrics() {
+		metrics = new SquashMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+	}
+
+	@Test
+	void record() {
+		Assertions.assertEquals("ok", metrics.record("admin", PARAMETERS, () -> "ok"));
+		Assertions.assertEquals("ok", metrics.record("admin", PARAMETERS, () -> "ok"));
+		final var timer = registry.get(SquashMetrics.TIMER).tag("node", "http://localhost:8120/")
+				.tag("operation", "admin").timer();
+		Assertions.assertEquals(2, timer.count());
+		Assertions.assertTrue(timer.totalTime(TimeUnit.NANOSECONDS) > 0);
+		Assertions.assertSame(timer, metrics.timer("admin", "http://localhost:8120/"));
+	}
+
+	@Test
+	void recordFailure() {
+		Assertions.assertThrows(IOException.class, () -> metrics.record("projects.parse", PARAMETERS, () -> {
+			throw new IOException();
+		}));
+		Assertions.assertEquals(1, registry.get(SquashMetrics.TIMER).tag("operation", "projects.parse").timer().count());
+	}
+
+	@Test
+	void failure() {
+		metrics.failure(PARAMETERS, "squash-login");
+		metrics.failure(PARAMETERS, "squash-login");
+		metrics.failure(PARAMETERS, "squash-admin");
+		Assertions.assertEquals(2, registry.get(SquashMetrics.FAILURES).tag("key", "squash-login").counter().count());
+		Assertions.assertEquals(1, registry.get(SquashMetrics.FAILURES).tag("key", "squash-admin")
+				.tag("node", "http://localhost:8120/").counter().count());
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+
+/**
+ * HTTP call budget of {@link SquashPluginResource}: each operation has a fixed amount of logins, administration page
+ * loads and project listings. Every Squash TM response is delayed by <code>squash.budget.latency</code> milliseconds
+ * (default 100), so the concurrent operations overlap as they would with a remote node, and the batch operations
+ * have a time budget expressed in round trips.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+@Rollback
+@Transactional
+class SquashPluginResourceBudgetTest extends AbstractSquashResourceTest {
+
+	@BeforeEach
+	void prepareMock() throws IOException {
+		latency = Integer.getInteger("squash.budget.latency", 100);
+		stubLogin();
+		stubAdmin();
+		stubProjects();
+		stubProjectSearch();
+		httpServer.start();
+	}
+
+	/**
+	 * Check the amount of calls received by Squash TM.
+	 */
+	private void assertCalls(final int logins, final int admins, final int listings) {
+		httpServer.verify(logins, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(admins, getRequestedFor(urlEqualTo("/administration")));
+		httpServer.verify(listings, getRequestedFor(urlPathEqualTo("/generic-projects")));
+	}
+
+	/**
+	 * Check the elapsed time since the start of an operation fits in the given amount of round trips.
+	 */
+	private void assertRoundTrips(final long start, final int roundTrips) {
+		final var elapsed = System.currentTimeMillis() - start;
+		Assertions.assertTrue(elapsed < (long) roundTrips * latency,
+				() -> elapsed + "ms exceeds " + roundTrips + " round trips of " + latency + "ms");
+	}
+
+	private Map<String, String> getParameters() {
+		return subscriptionResource.getParametersNoCheck(subscription);
+	}
+
+	@Test
+	void link() throws Exception {
+		resource.link(subscription);
+		assertCalls(1, 0, 1);
+		resource.link(subscription);
+		assertCalls(1, 0, 1);
+	}
+
+	@Test
+	void checkStatus() {
+		Assertions.assertTrue(resource.checkStatus(getParameters()));
+		assertCalls(1, 1, 0);
+		Assertions.assertTrue(resource.checkStatus(getParameters()));
+
+		// The second check is served from the last probe
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/login")));
+		assertCalls(1, 1, 0);
+
+		// A live check loads the administration page again, within the same session
+		Assertions.assertTrue(resource.checkStatus(getParameters(), true));
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/login")));
+		assertCalls(1, 2, 0);
+	}
+
+	@Test
+	void checkSubscriptionStatus() throws Exception {
+		for (var i = 0; i < 3; i++) {
+			Assertions.assertTrue(resource.checkSubscriptionStatus(getParameters()).getData().containsKey("project"));
+		}
+		assertCalls(1, 0, 1);
+	}
+
+	@Test
+	void getVersion() throws Exception {
+		for (var i = 0; i < 3; i++) {
+			Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+		}
+		assertCalls(1, 1, 0);
+	}
+
+	@Test
+	void findAllByName() throws Exception {
+		for (var i = 0; i < 3; i++) {
+			Assertions.assertEquals(3, resource.findAllByName(NODE, "client1", 0, 20).size());
+		}
+		assertCalls(1, 0, 1);
+	}
+
+	@Test
+	void findAllByNameNoCache() throws Exception {
+		final var ttl = catalogCache.getTtl();
+		ReflectionTestUtils.setField(catalogCache, "ttl", 0);
+		try {
+			for (var i = 0; i < 3; i++) {
+				Assertions.assertEquals(3, resource.findAllByName(NODE, "client1", 0, 20).size());
+			}
+
+			// One page per search, within the same session
+			assertCalls(1, 0, 3);
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "ttl", ttl);
+		}
+	}
+
+	@Test
+	void subscriptionLifecycle() throws Exception {
+		resource.link(subscription);
+		resource.checkStatus(getParameters());
+		resource.getVersion(subscription);
+		resource.checkSubscriptionStatus(getParameters());
+		resource.findAllByName(NODE, "client1", 0, 20);
+
+		// A single session, the version is known from the status check
+		assertCalls(1, 1, 1);
+	}
+
+	@Test
+	void checkSubscriptionStatusBatch() {
+		final var subscriptions = new ArrayList<Integer>();
+		subscriptions.add(subscription);
+		for (var i = 0; i < 20; i++) {
+			subscriptions.add(newSubscription("22"));
+		}
+		final var start = System.currentTimeMillis();
+		final var statuses = resource.checkSubscriptionStatus(subscriptions);
+		Assertions.assertEquals(21, statuses.size());
+		statuses.values().forEach(s -> Assertions.assertTrue(s.getStatus().isUp()));
+
+		// One login and one listing for the whole batch of the same node, well under the 42 sequential round trips
+		assertCalls(1, 0, 1);
+		assertRoundTrips(start, 10);
+	}
+}
@@ -3,20 +3,20 @@
  */
 package org.ligoj.app.plugin.squash;
 
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.NotImplementedException;
 import org.apache.hc.core5.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.ligoj.app.AbstractServerTest;
 import org.ligoj.app.api.SubscriptionStatusWithData;
 import org.ligoj.app.dao.ParameterValueRepository;
 import org.ligoj.app.model.*;
-import org.ligoj.app.resource.subscription.SubscriptionResource;
 import org.ligoj.bootstrap.MatcherUtil;
 import org.ligoj.bootstrap.core.validation.ValidationJsonException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,15 +24,26 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 
 /**
  * Test class of {@link SquashPluginResource}
@@ -41,36 +52,13 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 @ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
 @Rollback
 @Transactional
-public class SquashPluginResourceTest extends AbstractServerTest {
-	@Autowired
-	private SquashPluginResource resource;
-
-	@Autowired
-	private SubscriptionResource subscriptionResource;
+public class SquashPluginResourceTest extends AbstractSquashResourceTest {
 
 	@Autowired
 	private ParameterValueRepository parameterValueRepository;
 
-	protected int subscription;
-
-	@BeforeEach
-	void prepareData() throws IOException {
-		// Only with Spring context
-		persistEntities("csv",
-				new Class<?>[]{Node.class, Parameter.class, Project.class, Subscription.class, ParameterValue.class},
-				StandardCharsets.UTF_8);
-		this.subscription = getSubscription("Jupiter");
-
-		// Coverage only
-		Assertions.assertEquals("service:req:squash", resource.getKey());
-	}
-
-	/**
-	 * Return the subscription identifier of Jupiter. Assumes there is only one subscription for a service.
-	 */
-	private Integer getSubscription(final String project) {
-		return getSubscription(project, SquashPluginResource.KEY);
-	}
+	@Autowired
+	private SquashRequestCoalescer coalescer;
 
 	@Test
 	void delete() throws Exception {
@@ -86,11 +74,346 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
 	}
 
+	@Test
+	void getVersionReuseSession() throws Exception {
+		prepareMockAdmin();
+		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+		Assertions.assertTrue(resource.checkStatus(subscriptionResource.getParametersNoCheck(subscription)));
+		httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+
+		// Second version is served from the cache
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/administration")));
+	}
+
+	@Test
+	void checkStatusExpiredSession() throws Exception {
+		prepareMockAdmin();
+		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+
+		// The pooled session is now redirected to the login form, a new login is attempted once
+		prepareMockExpiredSession(get(urlEqualTo("/administration")));
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> resource.checkStatus(subscriptionResource.getParametersNoCheck(subscription))), SquashPluginResource.KEY + ":user", "squash-admin");
+		httpServer.verify(2, postRequestedFor(urlEqualTo("/login")));
+	}
+
+	@Test
+	void checkStatusExpiredSessionRelogin() throws Exception {
+		prepareMockAdmin();
+		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+
+		// Only the pooled session is expired, the new session gets the administration page
+		prepareMockExpiredSession(get(urlEqualTo("/administration")).inScenario("expiry")
+				.whenScenarioStateIs(STARTED).willSetStateTo("relogged"));
+		Assertions.assertTrue(resource.checkStatus(subscriptionResource.getParametersNoCheck(subscription)));
+		httpServer.verify(2, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(3, getRequestedFor(urlEqualTo("/administration")));
+	}
+
+	@Test
+	void getResourceFailedSession() throws Exception {
+		prepareMockAdmin();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(subscription));
+
+		// A failure of a reused session does not expire it
+		httpServer.stubFor(get(urlEqualTo("/administration"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+		Assertions.assertNull(resource.getResource(parameters, "administration"));
+		httpServer.stubFor(get(urlEqualTo("/administration")).willReturn(aResponse().withStatus(HttpStatus.SC_FORBIDDEN)));
+		Assertions.assertNull(resource.getResource(parameters, "administration"));
+		httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(3, getRequestedFor(urlEqualTo("/administration")));
+	}
+
+	/**
+	 * Redirect the given requests to the login form, as Squash TM does for an expired session.
+	 */
+	private void prepareMockExpiredSession(final MappingBuilder expired) {
+		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody("<form action=\"login\" method=\"post\"><input name=\"username\"/>"
+						+ "<input name=\"password\" type=\"password\"/></form>")));
+		httpServer.stubFor(expired.willReturn(aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY)
+				.withHeader("Location", "http://localhost:8120/login")));
+	}
+
 	@Test
 	void getLastVersion() throws Exception {
 		Assertions.assertTrue(resource.getLastVersion().length() > 4);
 	}
 
+	@Test
+	void getLastVersionRevalidate() throws Exception {
+		final var tags = "/2.0/repositories/nx/squashtest-tm/refs/tags?pagelen=1&q=name~%22squash-tm-%22&sort=-target.date";
+		httpServer.stubFor(get(urlEqualTo(tags)).withHeader("If-None-Match", absent())
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("ETag", "\"v1\"")
+						.withBody("{\"values\":[{\"name\":\"squash-tm-9.1.0\"}]}")));
+		httpServer.stubFor(get(urlEqualTo(tags)).withHeader("If-None-Match", equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+		httpServer.start();
+		final var target = AopTestUtils.getTargetObject(resource);
+		final var publicServer = ReflectionTestUtils.getField(target, "publicServer");
+		ReflectionTestUtils.setField(target, "publicServer", "http://localhost:8120");
+		try {
+			Assertions.assertEquals("9.1.0", resource.getLastVersion());
+			Assertions.assertEquals("9.1.0", resource.getLastVersion());
+			httpServer.verify(1, getRequestedFor(urlEqualTo(tags)));
+
+			// Expired entry is revalidated
+			versionCache.putLastVersion(versionCache.getLastVersion().revalidate(0));
+			Assertions.assertEquals("9.1.0", resource.getLastVersion());
+			httpServer.verify(2, getRequestedFor(urlEqualTo(tags)));
+			httpServer.verify(1, getRequestedFor(urlEqualTo(tags)).withHeader("If-None-Match", equalTo("\"v1\"")));
+			Assertions.assertTrue(versionCache.getLastVersion().fetchedAt() > 0);
+		} finally {
+			ReflectionTestUtils.setField(target, "publicServer", publicServer);
+		}
+	}
+
+	@Test
+	void getLastVersionUnavailable() throws Exception {
+		final var tags = "/2.0/repositories/nx/squashtest-tm/refs/tags?pagelen=1&q=name~%22squash-tm-%22&sort=-target.date";
+		httpServer.stubFor(get(urlEqualTo(tags)).withHeader("If-None-Match", absent())
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("ETag", "\"v1\"")
+						.withBody("{\"values\":[{\"name\":\"squash-tm-9.1.0\"}]}")));
+		httpServer.stubFor(get(urlEqualTo(tags)).withHeader("If-None-Match", equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(429)));
+		httpServer.start();
+		final var target = AopTestUtils.getTargetObject(resource);
+		final var publicServer = ReflectionTestUtils.getField(target, "publicServer");
+		ReflectionTestUtils.setField(target, "publicServer", "http://localhost:8120");
+		try {
+			Assertions.assertEquals("9.1.0", resource.getLastVersion());
+
+			// The expired entry is served while the public server is unavailable
+			versionCache.putLastVersion(versionCache.getLastVersion().revalidate(0));
+			Assertions.assertEquals("9.1.0", resource.getLastVersion());
+			Assertions.assertEquals(0, versionCache.getLastVersion().fetchedAt());
+
+			// Nothing to serve without a cached entry
+			versionCache.clear();
+			httpServer.stubFor(get(urlEqualTo(tags)).willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+			Assertions.assertEquals("", resource.getLastVersion());
+		} finally {
+			ReflectionTestUtils.setField(target, "publicServer", publicServer);
+		}
+	}
+
+	@Test
+	void getResourceAsync() throws Exception {
+		prepareMockProject();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertEquals(12, resource.getProjectsAsync(parameters).get(5, TimeUnit.SECONDS).size());
+		Assertions.assertTrue(resource.getResourceAsync(parameters, "generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")
+				.get(5, TimeUnit.SECONDS).contains("Client1 - P1"));
+		Assertions.assertNull(resource.getResourceAsync(parameters, "administration").get(5, TimeUnit.SECONDS));
+
+		// A missing resource does not expire the session
+		httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+	}
+
+	@Test
+	void getResourceAsyncUnauthorized() throws Exception {
+		prepareMockProject();
+		httpServer.stubFor(get(urlEqualTo("/administration"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_UNAUTHORIZED)));
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertEquals(12, resource.getProjectsAsync(parameters).get(5, TimeUnit.SECONDS).size());
+
+		// The rejected session is considered as expired, a new login is attempted once
+		Assertions.assertNull(resource.getResourceAsync(parameters, "administration").get(5, TimeUnit.SECONDS));
+		httpServer.verify(2, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/administration")));
+	}
+
+	@Test
+	void getResourceCoalesced() throws Exception {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/administration"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(500).withBody("admin")));
+		httpServer.start();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		final var start = new CountDownLatch(1);
+		try (var executor = Executors.newFixedThreadPool(4)) {
+			final var results = new ArrayList<Future<String>>();
+			for (var i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return resource.getResource(parameters, "administration");
+				}));
+			}
+			start.countDown();
+			for (final var result : results) {
+				Assertions.assertEquals("admin", result.get(5, TimeUnit.SECONDS));
+			}
+		}
+
+		// Identical concurrent requests share a single login and download
+		httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/administration")));
+		Assertions.assertEquals(0, coalescer.size());
+	}
+
+	@Test
+	void getResourceAsyncLoginFailed() throws Exception {
+		httpServer.stubFor(
+				post(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_FORBIDDEN).withBody("")));
+		httpServer.start();
+		Assertions.assertNull(resource.getResourceAsync(subscriptionResource.getParametersNoCheck(subscription), "administration")
+				.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void getResourceDeadline() {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(aResponse().withFixedDelay(200)
+				.withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/administration"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(3000).withBody("admin")));
+		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)));
+		httpServer.start();
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deadline", 500L);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			final var start = System.currentTimeMillis();
+
+			// The fetch gets only the budget left by the login
+			Assertions.assertNull(resource.getResource(parameters, "administration"));
+			Assertions.assertTrue(System.currentTimeMillis() - start < 2000);
+			MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+					() -> resource.validateAdminAccess(parameters)), "service:req:squash:url", "squash-connection");
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+		}
+	}
+
+	@Test
+	void loadCatalogDeadline() {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlPathEqualTo("/generic-projects"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(3000).withBody("{}")));
+		httpServer.start();
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deadline", 500L);
+		try {
+			// A missed deadline fails the loader instead of caching an empty catalog
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			Assertions.assertThrows(IOException.class, () -> resource.loadCatalog(parameters));
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+		}
+	}
+
+	@Test
+	void loadCatalogDeadlineBody() {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+
+		// The headers are sent immediately, the body stalls
+		httpServer.stubFor(get(urlPathEqualTo("/generic-projects")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody("{\"aaData\":[]}").withChunkedDribbleDelay(5, 5000)));
+		httpServer.stubFor(get(urlEqualTo("/administration")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody("<html>administration</html>").withChunkedDribbleDelay(5, 5000)));
+		httpServer.start();
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deadline", 500L);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			final var start = System.currentTimeMillis();
+			Assertions.assertThrows(IOException.class, () -> resource.loadCatalog(parameters));
+			Assertions.assertNull(resource.getResource(parameters, "administration"));
+			Assertions.assertTrue(System.currentTimeMillis() - start < 3000);
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+		}
+	}
+
+	@Test
+	void getResourceDeadlineLoginFailed() {
+		httpServer.stubFor(
+				post(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_FORBIDDEN).withBody("")));
+		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)));
+		httpServer.start();
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deadline", 5000L);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+					() -> resource.validateAdminAccess(parameters)), "service:req:squash:user", "squash-login");
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+		}
+	}
+
+	@Test
+	void getResourceHedged() {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlPathEqualTo("/generic-projects"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("{}")));
+
+		// The first request is a straggler, the hedged one is answered immediately
+		httpServer.stubFor(get(urlEqualTo("/administration")).inScenario("hedge").whenScenarioStateIs(STARTED)
+				.willSetStateTo("hedged")
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(5000).withBody("slow")));
+		httpServer.stubFor(get(urlEqualTo("/administration")).inScenario("hedge").whenScenarioStateIs("hedged")
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("admin")));
+		httpServer.start();
+		ReflectionTestUtils.setField(httpClient, "hedging", true);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			for (var i = 0; i < 20; i++) {
+				// Learn the latency of this node
+				Assertions.assertEquals("{}", resource.getResource(parameters, "generic-projects?sEcho=" + i));
+			}
+			final var start = System.currentTimeMillis();
+			Assertions.assertEquals("admin", resource.getResource(parameters, "administration"));
+			Assertions.assertTrue(System.currentTimeMillis() - start < 4000);
+			httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+			httpServer.verify(2, getRequestedFor(urlEqualTo("/administration")));
+		} finally {
+			ReflectionTestUtils.setField(httpClient, "hedging", false);
+		}
+	}
+
+	@Test
+	void getProjectsCompressed() throws IOException {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("Content-Encoding", "gzip")
+						.withBody(compress(true, "generic-projects.json"))));
+		httpServer.stubFor(get(urlEqualTo("/administration")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withHeader("Content-Encoding", "deflate")
+				.withBody(compress(false, "administration.html"))));
+		httpServer.start();
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deadline", 5000L);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			Assertions.assertEquals(12, resource.getProjects(parameters).size());
+			Assertions.assertEquals("1.12.1.RELEASE", resource.getVersion(parameters));
+			httpServer.verify(getRequestedFor(urlEqualTo("/administration"))
+					.withHeader("Accept-Encoding", containing("deflate")));
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+		}
+	}
+
+	/**
+	 * Return the compressed content of a mock resource.
+	 */
+	private byte[] compress(final boolean gzip, final String resource) throws IOException {
+		final var bytes = new ByteArrayOutputStream();
+		try (var out = gzip ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes);
+				var in = new ClassPathResource("mock-server/squash/" + resource).getInputStream()) {
+			in.transferTo(out);
+		}
+		return bytes.toByteArray();
+	}
+
 	@Test
 	void link() throws Exception {
 		prepareMockProject();
@@ -117,6 +440,31 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> resource.link(this.subscription)), "service:req:squash:project", "squash-project");
 	}
 
+	@Test
+	void linkCreatedProject() throws Exception {
+		prepareMockProject();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertEquals(12, resource.getProjects(parameters).size());
+
+		// The project is created after the catalog has been cached
+		final var listing = "/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000";
+		httpServer.stubFor(get(urlEqualTo(listing)).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody(read("generic-projects.json").replace("\"project-id\":79,", "\"project-id\":99,"))));
+		ReflectionTestUtils.setField(catalogCache, "reloadInterval", 0L);
+		try {
+			resource.link(newSubscription("99"));
+			httpServer.verify(2, getRequestedFor(urlEqualTo(listing)));
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "reloadInterval", 30000L);
+		}
+
+		// The next reload of the catalog is rate limited
+		final var unknown = newSubscription("98");
+		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> resource.link(unknown)),
+				"service:req:squash:project", "squash-project");
+		httpServer.verify(2, getRequestedFor(urlEqualTo(listing)));
+	}
+
 	@Test
 	void checkSubscriptionStatus() throws Exception {
 		prepareMockProject();
@@ -125,6 +473,54 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		Assertions.assertTrue(nodeStatusWithData.getStatus().isUp());
 	}
 
+	@Test
+	void checkSubscriptionStatusCachedCatalog() throws Exception {
+		prepareMockProject();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		resource.checkSubscriptionStatus(parameters);
+		final var status = resource.checkSubscriptionStatus(parameters);
+		Assertions.assertEquals("Client2 - P1", ((SquashProject) status.getData().get("project")).getName());
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")));
+	}
+
+	@Test
+	void checkSubscriptionStatusNoCache() throws Exception {
+		prepareMockProject();
+		ReflectionTestUtils.setField(catalogCache, "ttl", 0);
+		try {
+			final var status = resource.checkSubscriptionStatus(subscriptionResource.getParametersNoCheck(subscription));
+			Assertions.assertEquals(1, ((SquashProject) status.getData().get("project")).getId().intValue());
+			Assertions.assertNull(catalogCache.peek(subscriptionResource.getParametersNoCheck(subscription)));
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "ttl", 300000);
+		}
+	}
+
+	@Test
+	void checkSubscriptionStatusBulk() throws Exception {
+		prepareMockProject();
+		final var other = newSubscription("22");
+		final var invalid = newSubscription("999");
+		final var statuses = resource.checkSubscriptionStatus(List.of(subscription, other, invalid));
+		Assertions.assertEquals(3, statuses.size());
+		Assertions.assertEquals("Client2 - P1", ((SquashProject) statuses.get(subscription).getData().get("project")).getName());
+		Assertions.assertEquals("Client1 - P2", ((SquashProject) statuses.get(other).getData().get("project")).getName());
+		Assertions.assertFalse(statuses.get(invalid).getStatus().isUp());
+		httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")));
+	}
+
+	@Test
+	void checkSubscriptionStatusBulkDown() {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("<html>")));
+		httpServer.start();
+		final var statuses = resource.checkSubscriptionStatus(List.of(subscription));
+		Assertions.assertFalse(statuses.get(subscription).getStatus().isUp());
+	}
+
 	@Test
 	void checkSubscriptionStatusInvalidIndex() throws IOException {
 		final Map<String, String> parameters = new HashMap<>(subscriptionResource.getParametersNoCheck(subscription));
@@ -134,51 +530,20 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 	}
 
 	private void prepareMockProject() throws IOException {
-		// Main entry
-		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("")));
-
-		// Login
-		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
-				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
-
-		// Project json
-		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
-				.willReturn(aResponse().withStatus(HttpStatus.SC_OK)
-						.withBody(IOUtils.toString(
-								new ClassPathResource("mock-server/squash/generic-projects.json").getInputStream(),
-								StandardCharsets.UTF_8))));
+		stubLogin();
+		stubProjects();
 		httpServer.start();
 	}
 
 	private void prepareMockProjectSearch() throws IOException {
-		// Login
-		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
-				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
-
-		// Project json
-		httpServer.stubFor(
-				get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000&sSearch=client1"))
-						.willReturn(
-								aResponse().withStatus(HttpStatus.SC_OK)
-										.withBody(IOUtils.toString(new ClassPathResource(
-														"mock-server/squash/generic-projects-client1.json").getInputStream(),
-												StandardCharsets.UTF_8))));
+		stubLogin();
+		stubProjectSearch();
 		httpServer.start();
 	}
 
 	private void prepareMockAdmin() throws IOException {
-		// Main entry
-		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("")));
-
-		// Login
-		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
-				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
-
-		// Administration page for version
-		httpServer.stubFor(get(urlEqualTo("/administration")).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
-				.withBody(IOUtils.toString(
-						new ClassPathResource("mock-server/squash/administration.html").getInputStream(),
-						StandardCharsets.UTF_8))));
+		stubLogin();
+		stubAdmin();
 		httpServer.start();
 	}
 
@@ -220,6 +585,36 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> resource.checkStatus(subscriptionResource.getParametersNoCheck(subscription))), SquashPluginResource.KEY + ":user", "squash-admin");
 	}
 
+	@Test
+	void checkStatusNotAdminMetrics() {
+		// Main entry
+		httpServer.stubFor(get(urlEqualTo("/login")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody("")));
+
+		// Login
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+
+		// Administration page for version
+		httpServer.stubFor(get(urlEqualTo("/administration"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_FORBIDDEN).withBody("")));
+		httpServer.start();
+		final var registry = new SimpleMeterRegistry();
+		final var metrics = new SquashMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		final var target = AopTestUtils.getTargetObject(resource);
+		final var previous = ReflectionTestUtils.getField(target, "metrics");
+		ReflectionTestUtils.setField(target, "metrics", metrics);
+		try {
+			MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class, () -> resource.checkStatus(subscriptionResource.getParametersNoCheck(subscription))), SquashPluginResource.KEY + ":user", "squash-admin");
+			Assertions.assertEquals(1, registry.get(SquashMetrics.FAILURES).tag("key", "squash-admin").counter().count());
+			Assertions.assertEquals(1, registry.get(SquashMetrics.TIMER).tag("operation", "login").timer().count());
+			Assertions.assertEquals(1, registry.get(SquashMetrics.TIMER).tag("operation", "admin")
+					.tag("node", "http://localhost:8120/").timer().count());
+		} finally {
+			ReflectionTestUtils.setField(target, "metrics", previous);
+		}
+	}
+
 	@Test
 	void checkStatusInvalidUrl() {
 		httpServer.stubFor(
@@ -230,13 +625,118 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 
 	@Test
 	void findAllByName() throws IOException {
-		prepareMockProjectSearch();
-		httpServer.start();
+		prepareMockProject();
 
-		final List<SquashProject> projects = resource.findAllByName("service:req:squash:dig", "client1");
+		final List<SquashProject> projects = resource.findAllByName("service:req:squash:dig", "client1", 0, 20);
 		Assertions.assertEquals(3, projects.size());
 		Assertions.assertEquals(79, projects.getFirst().getId().intValue());
 		Assertions.assertEquals("Client1 - P1", projects.getFirst().getName());
+
+		// Served by the local index
+		Assertions.assertEquals(3, resource.findAllByName("service:req:squash:dig", "P2", 0, 20).size());
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")));
+	}
+
+	@Test
+	void findAllByNameNoCache() throws IOException {
+		prepareMockProjectSearch();
+		httpServer.start();
+		ReflectionTestUtils.setField(catalogCache, "ttl", 0);
+		try {
+			final List<SquashProject> projects = resource.findAllByName("service:req:squash:dig", "client1", 0, 20);
+			Assertions.assertEquals(3, projects.size());
+			Assertions.assertEquals(79, projects.getFirst().getId().intValue());
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "ttl", 300000);
+		}
+	}
+
+	@Test
+	void findPageByName() throws IOException {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=10&iDisplayLength=2&sSearch=client+1"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(
+						"{\"iTotalRecords\":12,\"iTotalDisplayRecords\":11,\"aaData\":[{\"project-id\":5,\"name\":\"Client 1 - P11\"}]}")));
+		httpServer.start();
+
+		ReflectionTestUtils.setField(catalogCache, "ttl", 0);
+		try {
+			final var page = resource.findPageByName("service:req:squash:dig", "client 1", 10, 2);
+			Assertions.assertEquals(12, page.getTotalRecords());
+			Assertions.assertEquals(11, page.getTotalDisplayRecords());
+			Assertions.assertEquals(1, page.getAaData().size());
+			Assertions.assertEquals(5, page.getAaData().getFirst().getId().intValue());
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "ttl", 300000);
+		}
+	}
+
+	@Test
+	void findPageByNameLocal() throws IOException {
+		prepareMockProject();
+		final var page = resource.findPageByName("service:req:squash:dig", "client2", 2, 3);
+		Assertions.assertEquals(12, page.getTotalRecords());
+		Assertions.assertEquals(9, page.getTotalDisplayRecords());
+		Assertions.assertEquals(3, page.getAaData().size());
+		Assertions.assertEquals("Client2 - P2", page.getAaData().getFirst().getName());
+	}
+
+	@Test
+	void findAllNodesByName() throws IOException {
+		persistSystemEntities();
+		prepareMockProject();
+
+		final var result = resource.findAllNodesByName("client1", 2, 0);
+		Assertions.assertFalse(result.isPartial());
+		Assertions.assertEquals(2, result.getProjects().size());
+		final var project = result.getProjects().getFirst();
+		Assertions.assertEquals(79, project.getId().intValue());
+		Assertions.assertEquals("Client1 - P1", project.getName());
+		Assertions.assertEquals("service:req:squash:dig", project.getNode());
+		Assertions.assertEquals("Squash DIG", project.getNodeName());
+	}
+
+	@Test
+	void findAllNodesByNameNotVisible() throws IOException {
+		prepareMockProject();
+
+		// Without delegation nor administration right, no node is searched
+		final var result = resource.findAllNodesByName("client1", 2, 0);
+		Assertions.assertFalse(result.isPartial());
+		Assertions.assertTrue(result.getProjects().isEmpty());
+		httpServer.verify(0, postRequestedFor(urlEqualTo("/login")));
+	}
+
+	@Test
+	void findAllNodesByNameTimeout() {
+		persistSystemEntities();
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(aResponse().withFixedDelay(2000)
+				.withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.start();
+
+		final var result = resource.findAllNodesByName("client1", 20, 100);
+		Assertions.assertTrue(result.isPartial());
+		Assertions.assertEquals(List.of("service:req:squash:dig"), result.getUnavailable());
+		Assertions.assertTrue(result.getProjects().isEmpty());
+	}
+
+	@Test
+	void findAllNodesByNameTimeoutLoaded() throws Exception {
+		persistSystemEntities();
+		latency = 500;
+		stubLogin();
+		stubProjects();
+		httpServer.start();
+
+		// The late node is not interrupted, its catalog is cached in background
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertTrue(resource.findAllNodesByName("client1", 20, 100).isPartial());
+		for (var i = 0; i < 100 && catalogCache.peek(parameters) == null; i++) {
+			Thread.sleep(50);
+		}
+		Assertions.assertEquals(12, catalogCache.peek(parameters).getProjects().size());
+		Assertions.assertFalse(resource.findAllNodesByName("client1", 20, 100).isPartial());
 	}
 
 	@Test
@@ -244,8 +744,176 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		prepareMockAdmin();
 		httpServer.start();
 
-		final var projects = resource.findAllByName("service:req:squash:dig", "client1");
-		Assertions.assertEquals(0, projects.size());
+		// The missing listing is not cached as an empty catalog
+		Assertions.assertThrows(IOException.class,
+				() -> resource.findAllByName("service:req:squash:dig", "client1", 0, 20));
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(IOUtils.toString(
+						new ClassPathResource("mock-server/squash/generic-projects.json").getInputStream(),
+						StandardCharsets.UTF_8))));
+		Assertions.assertEquals(3, resource.findAllByName("service:req:squash:dig", "client1", 0, 20).size());
+	}
+
+	@Test
+	void getProjectsRefreshFailed() throws Exception {
+		prepareMockProject();
+		final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+		Assertions.assertEquals(12, resource.getProjects(parameters).size());
+
+		// The refresh fails, the stale catalog is still served
+		httpServer.stubFor(get(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+		Assertions.assertThrows(IOException.class, () -> resource.loadCatalog(parameters));
+		ReflectionTestUtils.setField(catalogCache, "ttl", 1);
+		try {
+			Thread.sleep(10);
+			Assertions.assertEquals(12, resource.getProjects(parameters).size());
+			Thread.sleep(500);
+			Assertions.assertEquals(12, resource.getProjects(parameters).size());
+		} finally {
+			ReflectionTestUtils.setField(catalogCache, "ttl", 300000);
+		}
+	}
+
+	private void prepareMockStatistics(final int library) throws IOException {
+		httpServer.stubFor(post(urlEqualTo("/login")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_MOVED_TEMPORARILY).withBody("").withHeader("location", "some")));
+		httpServer.stubFor(get(urlEqualTo("/test-case-browser/statistics?libraries=" + library + "&nodes="))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+						.withBody(IOUtils.toString(
+								new ClassPathResource("mock-server/squash/statistics.json").getInputStream(),
+								StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	void getStatistics() throws IOException {
+		prepareMockStatistics(1);
+		httpServer.start();
+		final var statistics = resource.getStatistics(subscription);
+		Assertions.assertEquals(2526, statistics.getBoundRequirementsStatistics().get("zeroRequirements"));
+		Assertions.assertEquals(168, statistics.getImportanceStatistics().get("veryHigh"));
+		Assertions.assertEquals(2823, statistics.getStatusesStatistics().get("approved"));
+		Assertions.assertEquals(3113, statistics.getSizeStatistics().get("between0And10Steps"));
+
+		// Served from the cache
+		resource.getStatistics(subscription);
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/test-case-browser/statistics?libraries=1&nodes=")));
+	}
+
+	@Test
+	void getStatisticsByCredentials() throws IOException {
+		final var parameters = new HashMap<>(subscriptionResource.getParametersNoCheck(subscription));
+		final var statistics = new SquashStatistics();
+		Assertions.assertSame(statistics, statisticsCache.get(parameters, 1, () -> statistics));
+
+		// Another password does not share the cached statistics
+		parameters.put(SquashPluginResource.PARAMETER_PASSWORD, "wrong");
+		Assertions.assertNotSame(statistics, statisticsCache.get(parameters, 1, SquashStatistics::new));
+	}
+
+	@Test
+	void getStatisticsNotFound() throws IOException {
+		prepareMockStatistics(2);
+		httpServer.start();
+		Assertions.assertThrows(IOException.class, () -> resource.getStatistics(subscription));
+
+		// The failure is not cached
+		prepareMockStatistics(1);
+		Assertions.assertEquals(168, resource.getStatistics(subscription).getImportanceStatistics().get("veryHigh"));
+	}
+
+	@Test
+	void getProjectStatistics() throws IOException {
+		prepareMockStatistics(1);
+		prepareMockStatistics(22);
+		httpServer.start();
+		newSubscription("22");
+		final var statistics = resource.getProjectStatistics(em.find(Subscription.class, subscription).getProject().getId());
+		Assertions.assertEquals(2 * 2526, statistics.getBoundRequirementsStatistics().get("zeroRequirements"));
+		Assertions.assertEquals(2 * 168, statistics.getImportanceStatistics().get("veryHigh"));
+		Assertions.assertEquals(0, statistics.getStatusesStatistics().get("toBeUpdated"));
+	}
+
+	private void prepareMockRequirements(final int page) throws IOException {
+		httpServer.stubFor(get(urlEqualTo("/api/rest/latest/projects/1/requirements?page=" + page + "&size=500"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+						.withBody(IOUtils.toString(
+								new ClassPathResource("mock-server/squash/requirements-" + page + ".json").getInputStream(),
+								StandardCharsets.UTF_8))));
+	}
+
+	private String exportRequirements() throws IOException {
+		final var response = resource.exportRequirements(subscription);
+		Assertions.assertEquals("application/x-ndjson", response.getMediaType().toString());
+		final var out = new ByteArrayOutputStream();
+		((StreamingOutput) response.getEntity()).write(out);
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void exportRequirements() throws IOException {
+		prepareMockStatistics(1);
+		prepareMockRequirements(0);
+		prepareMockRequirements(1);
+		httpServer.start();
+		final var lines = exportRequirements().split("\n");
+		Assertions.assertEquals(3, lines.length);
+		Assertions.assertTrue(lines[0].startsWith("{\"_type\":\"requirement\",\"id\":60,"));
+		Assertions.assertTrue(lines[1].contains("\"reference\":\"REQ-2\""));
+		Assertions.assertTrue(lines[2].contains("\"name\":\"Requirement\\nC\""));
+		httpServer.verify(2, getRequestedFor(urlMatching("/api/rest/latest/projects/1/requirements.*")));
+	}
+
+	@Test
+	void exportRequirementsNotFound() throws IOException {
+		prepareMockStatistics(1);
+		httpServer.start();
+		Assertions.assertThrows(IOException.class, this::exportRequirements);
+	}
+
+	@Test
+	void exportRequirementsPageStalled() throws IOException {
+		prepareMockStatistics(1);
+		prepareMockRequirements(0);
+		httpServer.stubFor(get(urlEqualTo("/api/rest/latest/projects/1/requirements?page=1&size=500"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(read("requirements-0.json"))
+						.withChunkedDribbleDelay(5, 5000)));
+		httpServer.start();
+		final var registry = new SimpleMeterRegistry();
+		final var metrics = new SquashMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		final var target = AopTestUtils.<SquashPluginResource>getTargetObject(resource);
+		final var previous = ReflectionTestUtils.getField(target, "metrics");
+		ReflectionTestUtils.setField(target, "metrics", metrics);
+		ReflectionTestUtils.setField(target, "deadline", 500L);
+		try {
+			final var start = System.currentTimeMillis();
+			Assertions.assertThrows(IOException.class, this::exportRequirements);
+
+			// The stalled page is bounded by the deadline, and each page fetch is recorded
+			Assertions.assertTrue(System.currentTimeMillis() - start < 3000);
+			Assertions.assertEquals(2, registry.get(SquashMetrics.TIMER).tag("operation", "requirements").timer().count());
+		} finally {
+			ReflectionTestUtils.setField(target, "deadline", 0L);
+			ReflectionTestUtils.setField(target, "metrics", previous);
+		}
+	}
+
+	@Test
+	void exportRequirementsPageFailed() throws IOException {
+		prepareMockStatistics(1);
+		prepareMockRequirements(0);
+		httpServer.stubFor(get(urlEqualTo("/api/rest/latest/projects/1/requirements?page=1&size=500"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+		httpServer.start();
+		final var response = resource.exportRequirements(subscription);
+		final var out = new ByteArrayOutputStream();
+		Assertions.assertThrows(IOException.class, () -> ((StreamingOutput) response.getEntity()).write(out));
+
+		// The stream is aborted after the first page
+		Assertions.assertEquals(2, out.toString(StandardCharsets.UTF_8).split("\n").length);
+		httpServer.verify(1, getRequestedFor(urlEqualTo("/api/rest/latest/projects/1/requirements?page=0&size=500")));
+		httpServer.verify(0, getRequestedFor(urlEqualTo("/api/rest/latest/projects/1/requirements?page=2&size=500")));
 	}
 
 	@Test
@@ -259,4 +927,185 @@ public class SquashPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("%23RequirementLibrary-1", response.getCookies().get("jstree_select").getValue());
 	}
 
+	@Test
+	void redirectFolder() throws IOException, URISyntaxException {
+		final Response response = resource.redirect(subscription, null, 12);
+		Assertions.assertEquals(302, response.getStatus());
+		Assertions.assertEquals("http://localhost:8120/requirement-workspace/", response.getHeaderString("location"));
+		Assertions.assertEquals("%23RequirementLibrary-1,%23RequirementFolder-12",
+				response.getCookies().get("jstree_open").getValue());
+		Assertions.assertEquals("%23RequirementFolder-12", response.getCookies().get("jstree_select").getValue());
+	}
+
+	@Test
+	void redirectRequirement() throws IOException, URISyntaxException {
+		final Response response = resource.redirect(subscription, 34, 12);
+		Assertions.assertEquals("%23RequirementLibrary-1,%23RequirementFolder-12",
+				response.getCookies().get("jstree_open").getValue());
+		Assertions.assertEquals("%23Requirement-34", response.getCookies().get("jstree_select").getValue());
+
+		// Requirement without folder
+		final Response requirement = resource.redirect(subscription, 34, null);
+		Assertions.assertEquals("%23RequirementLibrary-1", requirement.getCookies().get("jstree_open").getValue());
+		Assertions.assertEquals("%23Requirement-34", requirement.getCookies().get("jstree_select").getValue());
+	}
+
+	@Test
+	void redirectCached() throws IOException, URISyntaxException {
+		resource.redirect(subscription);
+
+		// The resolved target is reused without reading the parameters again
+		parameterValueRepository.findAllBySubscription(subscription).stream()
+				.filter(v -> v.getParameter().getId().equals(SquashPluginResource.PARAMETER_PROJECT)).findFirst().get()
+				.setData("2");
+		em.flush();
+		em.clear();
+		Assertions.assertEquals("%23Requirement-5",
+				resource.redirect(subscription, 5, null).getCookies().get("jstree_select").getValue());
+		Assertions.assertEquals("%23RequirementLibrary-1",
+				resource.redirect(subscription, 5, null).getCookies().get("jstree_open").getValue());
+
+		redirectCache.clear();
+		Assertions.assertEquals("%23RequirementLibrary-2",
+				resource.redirect(subscription).getCookies().get("jstree_open").getValue());
+	}
+
+	@Test
+	void probeLight() throws IOException {
+		prepareMockAdmin();
+		final var probe = "/generic-projects?sEcho=1&iDisplayStart=0&iDisplayLength=1";
+		httpServer.stubFor(get(urlEqualTo(probe)).willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+				.withBody("{\"iTotalRecords\":12,\"aaData\":[]}")));
+		final var target = AopTestUtils.getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "fullProbeEvery", 3);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			for (var i = 0; i < 3; i++) {
+				resource.probe(parameters, false, i);
+			}
+
+			// One full check, then light checks within the same session
+			httpServer.verify(1, getRequestedFor(urlEqualTo("/administration")));
+			httpServer.verify(2, getRequestedFor(urlEqualTo(probe)));
+			httpServer.verify(1, postRequestedFor(urlEqualTo("/login")));
+
+			// Live check is always full
+			resource.probe(parameters, true, 3);
+			httpServer.verify(2, getRequestedFor(urlEqualTo("/administration")));
+
+			// Light check failure
+			resource.probe(parameters, false, 4);
+			httpServer.stubFor(get(urlEqualTo(probe)).willReturn(aResponse().withStatus(HttpStatus.SC_FORBIDDEN)));
+			MatcherUtil.assertThrows(Assertions.assertThrows(ValidationJsonException.class,
+					() -> resource.probe(parameters, false, 5)), SquashPluginResource.PARAMETER_URL, "squash-connection");
+		} finally {
+			ReflectionTestUtils.setField(target, "fullProbeEvery", 1);
+		}
+	}
+
+	private void prepareMockDelta(final String column, final String rows) {
+		httpServer.stubFor(get(urlPathEqualTo("/generic-projects")).withQueryParam("mDataProp_0", equalTo(column))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+						.withBody("{\"iTotalRecords\":13,\"aaData\":[" + rows + "]}")));
+	}
+
+	@Test
+	void loadCatalogDelta() throws IOException {
+		prepareMockProject();
+		final var target = AopTestUtils.getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deltaSync", true);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			final var full = resource.getCatalog(parameters);
+			Assertions.assertEquals(12, full.size());
+			Assertions.assertEquals(full.getFetchedAt(), full.getReconciledAt());
+
+			// Project 22 is renamed, project 200 is created, the never modified projects are sorted first
+			prepareMockDelta("last-mod-on",
+					"{\"project-id\":79,\"name\":\"Unmodified\",\"created-on\":\"15/04/2016 10:05\",\"last-mod-on\":\"-\"},"
+							+ "{\"project-id\":22,\"name\":\"Renamed\",\"created-on\":\"18/09/2015 15:39\",\"last-mod-on\":\"20/08/2016 08:00\"},"
+							+ "{\"project-id\":1,\"name\":\"Old\",\"created-on\":\"05/06/2013 22:27\",\"last-mod-on\":\"24/03/2015 10:25\"}");
+			prepareMockDelta("created-on",
+					"{\"project-id\":200,\"name\":\"New\",\"created-on\":\"21/08/2016 09:00\",\"last-mod-on\":\"-\"},"
+							+ "{\"project-id\":104,\"name\":\"Old\",\"created-on\":\"17/08/2016 09:58\",\"last-mod-on\":\"-\"},"
+							+ "{\"project-id\":79,\"name\":\"Old\",\"created-on\":\"15/04/2016 10:05\",\"last-mod-on\":\"-\"}");
+			final var delta = resource.loadCatalog(parameters);
+			Assertions.assertEquals(13, delta.size());
+			Assertions.assertEquals("Renamed", delta.get(22).getName());
+			Assertions.assertEquals("New", delta.get(200).getName());
+			Assertions.assertEquals("Client1 - P1", delta.get(79).getName());
+			Assertions.assertEquals("Client2 - P8", delta.get(104).getName());
+			Assertions.assertEquals("New", delta.getName(12));
+			Assertions.assertTrue(delta.getWatermark() > full.getWatermark());
+			Assertions.assertEquals(full.getReconciledAt(), delta.getReconciledAt());
+			Assertions.assertEquals(1, delta.getIndex().search("renamed", 0, 10).getAaData().size());
+			httpServer.verify(1, getRequestedFor(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")));
+
+			// A failed page fails the whole delta
+			httpServer.stubFor(get(urlPathEqualTo("/generic-projects")).withQueryParam("mDataProp_0", equalTo("created-on"))
+					.willReturn(aResponse().withStatus(HttpStatus.SC_INTERNAL_SERVER_ERROR)));
+			Assertions.assertThrows(IOException.class, () -> resource.loadCatalog(parameters));
+
+			// Periodic full reconciliation
+			ReflectionTestUtils.setField(target, "fullSyncInterval", 0);
+			Assertions.assertEquals(12, resource.loadCatalog(parameters).size());
+			httpServer.verify(2, getRequestedFor(urlEqualTo("/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000")));
+		} finally {
+			ReflectionTestUtils.setField(target, "deltaSync", false);
+			ReflectionTestUtils.setField(target, "fullSyncInterval", 86400000L);
+		}
+	}
+
+	/**
+	 * Return the rows of a full page of never modified projects.
+	 */
+	private String newNeverModifiedRows(final int start) {
+		final var rows = new StringBuilder();
+		for (var i = start; i < start + 100; i++) {
+			rows.append(i == start ? "" : ",").append("{\"project-id\":").append(1000 + i)
+					.append(",\"name\":\"P\",\"created-on\":\"15/04/2016 10:05\",\"last-mod-on\":\"-\"}");
+		}
+		return rows.toString();
+	}
+
+	@Test
+	void loadCatalogDeltaNeverModified() throws IOException {
+		prepareMockProject();
+		final var target = AopTestUtils.getTargetObject(resource);
+		ReflectionTestUtils.setField(target, "deltaSync", true);
+		try {
+			final var parameters = subscriptionResource.getParametersNoCheck(subscription);
+			Assertions.assertEquals(12, resource.getCatalog(parameters).size());
+
+			// More pages of never modified projects sorted first than the whole catalog
+			for (var start = 0; start < 300; start += 100) {
+				httpServer.stubFor(get(urlPathEqualTo("/generic-projects"))
+						.withQueryParam("mDataProp_0", equalTo("last-mod-on"))
+						.withQueryParam("iDisplayStart", equalTo(String.valueOf(start)))
+						.willReturn(aResponse().withStatus(HttpStatus.SC_OK)
+								.withBody("{\"aaData\":[" + newNeverModifiedRows(start) + "]}")));
+			}
+			final var full = "/generic-projects?sEcho=4&iDisplayStart=0&iDisplayLength=100000";
+			Assertions.assertEquals(12, resource.loadCatalog(parameters).size());
+
+			// The delta is abandoned for a full listing
+			httpServer.verify(2, getRequestedFor(urlPathEqualTo("/generic-projects"))
+					.withQueryParam("mDataProp_0", equalTo("last-mod-on")));
+			httpServer.verify(0, getRequestedFor(urlPathEqualTo("/generic-projects"))
+					.withQueryParam("mDataProp_0", equalTo("created-on")));
+			httpServer.verify(2, getRequestedFor(urlEqualTo(full)));
+
+			// The never modified projects sorted last stop the modification pass
+			prepareMockDelta("last-mod-on",
+					"{\"project-id\":22,\"name\":\"Renamed\",\"created-on\":\"18/09/2015 15:39\",\"last-mod-on\":\"20/08/2030 08:00\"},"
+							+ newNeverModifiedRows(0));
+			prepareMockDelta("created-on", "");
+			Assertions.assertEquals("Renamed", resource.loadCatalog(parameters).get(22).getName());
+			httpServer.verify(3, getRequestedFor(urlPathEqualTo("/generic-projects"))
+					.withQueryParam("mDataProp_0", equalTo("last-mod-on")));
+			httpServer.verify(2, getRequestedFor(urlEqualTo(full)));
+		} finally {
+			ReflectionTestUtils.setField(target, "deltaSync", false);
+		}
+	}
 }
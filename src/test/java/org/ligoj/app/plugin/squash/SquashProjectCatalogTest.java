@@ -0,0 +1,53 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link SquashProjectCatalog}
+ */
+class SquashProjectCatalogTest {
+
+	@Test
+	void get() {
+		final var ids = new int[10000];
+		final var names = new ArrayList<String>();
+		for (var i = 0; i < ids.length; i++) {
+			// Sparse and negative identifiers
+			ids[i] = (i - 5000) * 64;
+			names.add(i % 7 == 0 ? null : "P" + i);
+		}
+		final var catalog = new SquashProjectCatalog(ids, names, 1L, null);
+		Assertions.assertEquals(10000, catalog.size());
+		Assertions.assertEquals(1L, catalog.getFetchedAt());
+		for (var i = 0; i < ids.length; i++) {
+			Assertions.assertEquals(i, catalog.indexOf(ids[i]));
+			Assertions.assertEquals(ids[i], catalog.get(ids[i]).getId().intValue());
+			Assertions.assertEquals(i % 7 == 0 ? "" : "P" + i, catalog.get(ids[i]).getName());
+		}
+		Assertions.assertEquals(-1, catalog.indexOf(1));
+		Assertions.assertNull(catalog.get(1));
+	}
+
+	@Test
+	void getDuplicate() {
+		final var catalog = new SquashProjectCatalog(new int[] { 5, 5 }, List.of("A", "B"), 0L, null);
+		Assertions.assertEquals("A", catalog.get(5).getName());
+		Assertions.assertEquals(2, catalog.getProjects().size());
+		Assertions.assertEquals("B", catalog.getProjects().get(1).getName());
+	}
+
+	@Test
+	void getEmpty() {
+		final var catalog = new SquashProjectCatalog(List.of(), 0L);
+		Assertions.assertEquals(0, catalog.size());
+		Assertions.assertNull(catalog.get(0));
+		Assertions.assertEquals(0, catalog.getIndex().search("abc", 0, 10).getTotalDisplayRecords());
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link SquashProjectIndex}
+ */
+class SquashProjectIndexTest {
+
+	private SquashProject newProject(final int id, final String name) {
+		final var project = new SquashProject();
+		project.setProject(id);
+		project.setName(name);
+		return project;
+	}
+
+	private List<String> search(final SquashProjectIndex index, final String criteria) {
+		return index.search(criteria, 0, 100).getAaData().stream().map(SquashProject::getName).toList();
+	}
+
+	private SquashProjectCatalog newCatalog(final SquashProjectCatalog previous, final SquashProject... projects) {
+		return new SquashProjectCatalog(List.of(projects), 0, previous);
+	}
+
+	@Test
+	void search() {
+		final var index = newCatalog(null, newProject(1, "Alpha Beta"), newProject(2, "Gamma alphabet"),
+				newProject(3, "Delta")).getIndex();
+		Assertions.assertEquals(List.of("Alpha Beta", "Gamma alphabet"), search(index, "ALPHA"));
+		Assertions.assertEquals(List.of("Delta"), search(index, "lta"));
+		Assertions.assertEquals(List.of(), search(index, "zeta"));
+		Assertions.assertEquals(List.of("Alpha Beta", "Gamma alphabet"), search(index, "AL"));
+		Assertions.assertEquals(List.of("Alpha Beta"), search(index, "b"));
+		Assertions.assertEquals(List.of(), search(index, "lp"));
+	}
+
+	@Test
+	void searchPage() {
+		final var index = newCatalog(null, newProject(1, "P3"), newProject(2, "P1"), newProject(3, "P2")).getIndex();
+		final var page = index.search("p", 1, 1);
+		Assertions.assertEquals(3, page.getTotalRecords());
+		Assertions.assertEquals(3, page.getTotalDisplayRecords());
+		Assertions.assertEquals("P2", page.getAaData().getFirst().getName());
+	}
+
+	@Test
+	void buildIncremental() {
+		final var previousCatalog = newCatalog(null, newProject(1, "Alpha"), newProject(2, "Beta"),
+				newProject(3, "Gamma"));
+		final var previous = previousCatalog.getIndex();
+		final var index = newCatalog(previousCatalog, newProject(1, "Alpha"), newProject(2, "Zeta"),
+				newProject(4, "Alphonse")).getIndex();
+		Assertions.assertEquals(List.of("Alpha", "Alphonse"), search(index, "alph"));
+		Assertions.assertEquals(List.of("Zeta"), search(index, "eta"));
+		Assertions.assertEquals(List.of(), search(index, "gam"));
+		Assertions.assertEquals(List.of(), search(index, "b"));
+
+		// Previous index is unchanged
+		Assertions.assertEquals(List.of("Beta"), search(previous, "eta"));
+	}
+
+	@Test
+	void buildLazy() {
+		final var previousCatalog = newCatalog(null, newProject(1, "Alpha"), newProject(2, "Beta"));
+		final var catalog = newCatalog(previousCatalog, newProject(1, "Alpha"), newProject(3, "Gamma"));
+
+		// The previous index has never been built, the new one is built from scratch
+		final var index = catalog.getIndex();
+		Assertions.assertSame(index, catalog.getIndex());
+		Assertions.assertEquals(List.of("Alpha"), search(index, "alp"));
+		Assertions.assertEquals(List.of("Gamma"), search(index, "g"));
+		Assertions.assertEquals(List.of(), search(index, "eta"));
+	}
+
+	@Test
+	void searchEmpty() {
+		Assertions.assertEquals(List.of(), search(SquashProjectIndex.EMPTY, "alpha"));
+		Assertions.assertEquals(List.of(), search(SquashProjectIndex.EMPTY, "a"));
+		Assertions.assertEquals(0, SquashProjectIndex.EMPTY.search("", 0, 10).getTotalRecords());
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Test class of {@link SquashProjectParser}
+ */
+class SquashProjectParserTest {
+
+	private String getListing() throws IOException {
+		return IOUtils.toString(new ClassPathResource("mock-server/squash/generic-projects.json").getInputStream(),
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void parse() throws IOException {
+		final var projects = SquashProjectParser.parse(getListing());
+		Assertions.assertEquals(12, projects.size());
+		Assertions.assertEquals(79, projects.getFirst().getId().intValue());
+		Assertions.assertEquals("Client1 - P1", projects.getFirst().getName());
+	}
+
+	@Test
+	void parseEmpty() throws IOException {
+		Assertions.assertEquals(0, SquashProjectParser.parse(null).size());
+		Assertions.assertEquals(0, SquashProjectParser.parse("").size());
+		Assertions.assertEquals(0, SquashProjectParser.parse("{\"sEcho\":\"1\",\"aaData\":[]}").size());
+	}
+
+	@Test
+	void find() throws IOException {
+		Assertions.assertEquals("Client2 - P1", SquashProjectParser.find(getListing(), 1).getName());
+		Assertions.assertNull(SquashProjectParser.find(getListing(), 999));
+	}
+
+	@Test
+	void findEarlyExit() throws IOException {
+		// The malformed tail is never read
+		Assertions.assertEquals("A", SquashProjectParser.find(
+				"{\"aaData\":[{\"project-id\":1,\"name\":\"A\",\"label\":{\"x\":[1]}},{\"project-id\":2,", 1).getName());
+	}
+
+	@Test
+	void parseDated() throws IOException {
+		final var format = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+		final var dates = new ArrayList<long[]>();
+		SquashProjectParser.parse(getListing(), format, (project, createdOn, lastModOn) -> {
+			if (project.getId() == 1) {
+				dates.add(new long[] { createdOn, lastModOn });
+			} else if (project.getId() == 79) {
+				dates.add(new long[] { createdOn, lastModOn });
+				return false;
+			}
+			return true;
+		});
+		Assertions.assertEquals(1, dates.size());
+		Assertions.assertEquals(LocalDateTime.of(2016, 4, 15, 10, 5).toInstant(ZoneOffset.UTC).toEpochMilli(),
+				dates.getFirst()[0]);
+
+		// Never modified project
+		Assertions.assertEquals(0, dates.getFirst()[1]);
+
+		dates.clear();
+		SquashProjectParser.parse(getListing(), format, (project, createdOn, lastModOn) -> {
+			if (project.getId() == 1) {
+				dates.add(new long[] { createdOn, lastModOn });
+			}
+			return true;
+		});
+		Assertions.assertEquals(LocalDateTime.of(2015, 3, 24, 10, 25).toInstant(ZoneOffset.UTC).toEpochMilli(),
+				dates.getFirst()[1]);
+	}
+
+	@Test
+	void parseDatedStream() throws IOException {
+		final var watermark = new long[1];
+		final var count = new int[1];
+		SquashProjectParser.parse(new ClassPathResource("mock-server/squash/generic-projects.json").getInputStream(),
+				DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"), (project, createdOn, lastModOn) -> {
+					watermark[0] = Math.max(watermark[0], Math.max(createdOn, lastModOn));
+					count[0]++;
+					return true;
+				});
+		Assertions.assertEquals(12, count[0]);
+		Assertions.assertTrue(watermark[0] >= LocalDateTime.of(2015, 3, 24, 10, 25).toInstant(ZoneOffset.UTC)
+				.toEpochMilli());
+
+		// Nothing to parse
+		SquashProjectParser.parse((InputStream) null, DateTimeFormatter.ISO_DATE, (project, createdOn, lastModOn) -> {
+			throw new IllegalStateException();
+		});
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link SquashRequestCoalescer}
+ */
+class SquashRequestCoalescerTest {
+
+	private final SquashRequestCoalescer coalescer = new SquashRequestCoalescer();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@Test
+	void executeSequential() {
+		Assertions.assertEquals("1", coalescer.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+		Assertions.assertEquals("2", coalescer.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+		Assertions.assertNull(coalescer.execute("key", () -> null));
+		Assertions.assertEquals(0, coalescer.size());
+	}
+
+	@Test
+	void executeConcurrent() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newFixedThreadPool(5)) {
+			final var leader = executor.submit(() -> coalescer.execute("key", () -> {
+				calls.incrementAndGet();
+				started.countDown();
+				await(release);
+				return "value";
+			}));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			final var followers = new ArrayList<Future<String>>();
+			for (var i = 0; i < 4; i++) {
+				followers.add(executor.submit(() -> coalescer.execute("key", () -> "other" + calls.incrementAndGet())));
+			}
+
+			// A distinct key is not coalesced
+			Assertions.assertEquals("distinct", coalescer.execute("other", () -> "distinct"));
+			Thread.sleep(100);
+			release.countDown();
+			Assertions.assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+			for (final var follower : followers) {
+				final var value = follower.get(5, TimeUnit.SECONDS);
+				// Late followers may start a new request once the first one is completed
+				Assertions.assertTrue("value".equals(value) || value.startsWith("other"));
+			}
+		}
+		Assertions.assertEquals(0, coalescer.size());
+	}
+
+	@Test
+	void executeFailure() throws Exception {
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		try (var executor = Executors.newFixedThreadPool(2)) {
+			final Future<String> leader = executor.submit(() -> coalescer.execute("key", () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("failed");
+			}));
+			Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+			final Future<String> follower = executor.submit(() -> coalescer.execute("key", () -> "other"));
+			Thread.sleep(100);
+			release.countDown();
+			Assertions.assertInstanceOf(IllegalStateException.class,
+					Assertions.assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+			final var cause = Assertions.assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS))
+					.getCause();
+			Assertions.assertEquals("failed", cause.getMessage());
+		}
+		Assertions.assertEquals(0, coalescer.size());
+	}
+
+	private void await(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.squash;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Test class of {@link SquashVersionExtractor}
+ */
+class SquashVersionExtractorTest {
+
+	@Test
+	void extract() throws IOException {
+		Assertions.assertEquals("1.12.1.RELEASE", SquashVersionExtractor.extract(IOUtils.toString(
+				new ClassPathResource("mock-server/squash/administration.html").getInputStream(),
+				StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	void extractStream() throws IOException {
+		try (var page = new ClassPathResource("mock-server/squash/administration.html").getInputStream()) {
+			Assertions.assertEquals("1.12.1.RELEASE", SquashVersionExtractor.extract(page));
+		}
+	}
+
+	@Test
+	void extractBufferBoundaries() throws IOException {
+		// Move the tags across all offsets of the buffer boundary
+		for (var padding = 2000; padding < 2100; padding++) {
+			final var page = "x".repeat(padding) + "<label>Version</label><label>Version</label><span>1.0</span>";
+			Assertions.assertEquals("1.0", SquashVersionExtractor
+					.extract(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8))));
+		}
+	}
+
+	@Test
+	void extractPartialTags() {
+		Assertions.assertEquals("2.0", SquashVersionExtractor.extract("<label>Version<<label>Version</label><span>2.0</span>"));
+		Assertions.assertEquals("2.0</spa", SquashVersionExtractor.extract("<label>Version</label><span>2.0</spa</span>"));
+	}
+
+	@Test
+	void extractNotFound() {
+		Assertions.assertEquals("", SquashVersionExtractor.extract((String) null));
+		Assertions.assertEquals("", SquashVersionExtractor.extract(""));
+		Assertions.assertEquals("", SquashVersionExtractor.extract("<html><label>Version</label>"));
+		Assertions.assertEquals("", SquashVersionExtractor.extract("<label>Version</label><span>1.0"));
+		Assertions.assertEquals("", SquashVersionExtractor.extract("<label>Version</label><span>" + "1".repeat(1000) + "</span>"));
+	}
+}